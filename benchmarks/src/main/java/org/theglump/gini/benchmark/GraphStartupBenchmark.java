@@ -0,0 +1,62 @@
+package org.theglump.gini.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.theglump.gini.Gini;
+
+/**
+ * Initialization of contexts over generated graphs of beans, scanned or
+ * loaded from the build time index
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphStartupBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	private int size;
+
+	private SyntheticBeans beans;
+	private ClassLoader previousClassLoader;
+
+	@Setup
+	public void setup() throws IOException {
+		beans = new SyntheticBeans(size);
+		previousClassLoader = Thread.currentThread().getContextClassLoader();
+		Thread.currentThread().setContextClassLoader(beans.getClassLoader());
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Thread.currentThread().setContextClassLoader(previousClassLoader);
+		beans.delete();
+	}
+
+	@Benchmark
+	public Gini scanned() {
+		return Gini.builder().packages(beans.getPackageName()).useIndex(false).build();
+	}
+
+	@Benchmark
+	public Gini indexed() {
+		return Gini.builder().packages(beans.getPackageName()).useIndex(true).build();
+	}
+
+}
@@ -0,0 +1,43 @@
+package org.theglump.gini.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.theglump.gini.Gini;
+
+/**
+ * Cost of {@link Gini#inject(Object)} on a new unmanaged object
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InjectionBenchmark {
+
+	private Gini ctx;
+
+	@Setup
+	public void setup() {
+		ctx = Gini.initialize(StartupBenchmark.FIXTURES_PACKAGE);
+	}
+
+	@Benchmark
+	public InjectionTarget inject() {
+		InjectionTarget target = new InjectionTarget();
+		ctx.inject(target);
+		return target;
+	}
+
+}
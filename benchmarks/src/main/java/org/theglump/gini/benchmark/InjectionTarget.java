@@ -0,0 +1,31 @@
+package org.theglump.gini.benchmark;
+
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.bean.Root;
+import org.theglump.gini.bean.Rule;
+import org.theglump.gini.bean.Step;
+
+/**
+ * Unmanaged object injected by {@link InjectionBenchmark}, like a request
+ * scoped object
+ * 
+ */
+public class InjectionTarget {
+
+	@Inject
+	private Root root;
+
+	@Inject
+	private Rule rule;
+
+	@Inject
+	private Step stepImpl1;
+
+	@Inject
+	private Step stepImpl2;
+
+	public Root getRoot() {
+		return root;
+	}
+
+}
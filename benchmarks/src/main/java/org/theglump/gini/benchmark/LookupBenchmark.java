@@ -0,0 +1,57 @@
+package org.theglump.gini.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.theglump.gini.Gini;
+import org.theglump.gini.bean.Root;
+import org.theglump.gini.bean.Rule;
+import org.theglump.gini.bean.StepImpl2;
+
+/**
+ * Cost of {@link Gini#getBean(Class)} on the test fixtures, by concrete class
+ * and by interface, from several threads
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+	private Gini ctx;
+
+	@Setup
+	public void setup() {
+		ctx = Gini.initialize(StartupBenchmark.FIXTURES_PACKAGE);
+	}
+
+	@Benchmark
+	public Root byClass() {
+		return ctx.getBean(Root.class);
+	}
+
+	@Benchmark
+	public Rule byInterface() {
+		return ctx.getBean(Rule.class);
+	}
+
+	@Benchmark
+	public StepImpl2 proxifiedByClass() {
+		return ctx.getBean(StepImpl2.class);
+	}
+
+}
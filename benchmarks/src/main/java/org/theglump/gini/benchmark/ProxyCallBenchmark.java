@@ -0,0 +1,65 @@
+package org.theglump.gini.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.theglump.gini.Gini;
+import org.theglump.gini.bean.Rule;
+import org.theglump.gini.bean.StepImpl1;
+
+/**
+ * Cost of calls on a proxified bean : {@link StepImpl1#implemName()} is
+ * advised, {@link StepImpl1#getRule()} is not and should cost about as much
+ * as a direct call on a plain instance. The cost of metrics is measured on a
+ * context recording them.
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProxyCallBenchmark {
+
+	private StepImpl1 plain;
+	private StepImpl1 proxified;
+	private StepImpl1 measured;
+
+	@Setup
+	public void setup() {
+		plain = new StepImpl1();
+		proxified = Gini.initialize(StartupBenchmark.FIXTURES_PACKAGE).getBean(StepImpl1.class);
+		measured = Gini.builder().packages(StartupBenchmark.FIXTURES_PACKAGE).metrics(true).build().getBean(StepImpl1.class);
+	}
+
+	@Benchmark
+	public Rule directCall() {
+		return plain.getRule();
+	}
+
+	@Benchmark
+	public Rule unadvisedCall() {
+		return proxified.getRule();
+	}
+
+	@Benchmark
+	public String advisedCall() {
+		return proxified.implemName();
+	}
+
+	@Benchmark
+	public String advisedCallWithMetrics() {
+		return measured.implemName();
+	}
+
+}
@@ -0,0 +1,38 @@
+package org.theglump.gini.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.theglump.gini.Gini;
+
+/**
+ * Compares the initialization of a context when its package is scanned with
+ * the initialization from the index written at build time
+ * 
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StartupBenchmark {
+
+	static final String FIXTURES_PACKAGE = "org.theglump.gini.bean";
+
+	@Benchmark
+	public Gini scanned() {
+		return Gini.builder().packages(FIXTURES_PACKAGE).useIndex(false).build();
+	}
+
+	@Benchmark
+	public Gini indexed() {
+		return Gini.builder().packages(FIXTURES_PACKAGE).useIndex(true).build();
+	}
+
+}
@@ -0,0 +1,119 @@
+package org.theglump.gini.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+import org.theglump.gini.processor.IndexProcessor;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Generates a graph of managed beans in a temporary directory, along with its
+ * build time index. Each bean <code>BeanN</code> has an {@link Inject} field
+ * referencing <code>BeanN-1</code>.
+ * 
+ */
+class SyntheticBeans {
+
+	private static final String MANAGED = "L" + Managed.class.getName().replace('.', '/') + ";";
+	private static final String INJECT = "L" + Inject.class.getName().replace('.', '/') + ";";
+
+	private final String packageName;
+	private final File directory;
+	private final URLClassLoader classLoader;
+
+	SyntheticBeans(int size) throws IOException {
+		this.packageName = "org.theglump.gini.benchmark.generated.graph" + size;
+		this.directory = Files.createTempDir();
+		StringBuilder index = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			File classFile = new File(directory, internalName(i) + ".class");
+			Files.createParentDirs(classFile);
+			Files.write(generate(i), classFile);
+			// no annotated methods
+			index.append(IndexProcessor.MANAGED).append('\t').append(className(i)).append('\t').append('\n');
+			if (i > 0) {
+				index.append(IndexProcessor.INJECT).append('\t').append(className(i)).append('\t').append(fieldName(i - 1)).append('\n');
+			}
+		}
+		File indexFile = new File(directory, IndexProcessor.INDEX_RESOURCE);
+		Files.createParentDirs(indexFile);
+		Files.write(index, indexFile, Charsets.UTF_8);
+		this.classLoader = new URLClassLoader(new URL[] { directory.toURI().toURL() }, getClass().getClassLoader());
+	}
+
+	String getPackageName() {
+		return packageName;
+	}
+
+	/**
+	 * Class loader of the generated beans, to be set as context class loader
+	 * while initializing contexts
+	 */
+	ClassLoader getClassLoader() {
+		return classLoader;
+	}
+
+	void delete() throws IOException {
+		classLoader.close();
+		delete(directory);
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private String className(int i) {
+		return packageName + ".Bean" + i;
+	}
+
+	private String internalName(int i) {
+		return className(i).replace('.', '/');
+	}
+
+	private static String fieldName(int i) {
+		return "bean" + i;
+	}
+
+	private byte[] generate(int i) {
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, internalName(i), null, "java/lang/Object", null);
+		cw.visitAnnotation(MANAGED, true).visitEnd();
+		if (i > 0) {
+			FieldVisitor fv = cw.visitField(Opcodes.ACC_PRIVATE, fieldName(i - 1), "L" + internalName(i - 1) + ";", null, null);
+			fv.visitAnnotation(INJECT, true).visitEnd();
+			fv.visitEnd();
+		}
+		MethodVisitor constructor = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		constructor.visitCode();
+		constructor.visitVarInsn(Opcodes.ALOAD, 0);
+		constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+		constructor.visitInsn(Opcodes.RETURN);
+		constructor.visitMaxs(0, 0);
+		constructor.visitEnd();
+		MethodVisitor value = cw.visitMethod(Opcodes.ACC_PUBLIC, "value", "()I", null, null);
+		value.visitCode();
+		value.visitLdcInsn(i);
+		value.visitInsn(Opcodes.IRETURN);
+		value.visitMaxs(0, 0);
+		value.visitEnd();
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+}
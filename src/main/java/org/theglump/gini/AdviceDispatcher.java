@@ -0,0 +1,26 @@
+package org.theglump.gini;
+
+import java.lang.reflect.Method;
+
+/**
+ * Calls an advice method without reflection.
+ * 
+ * Implementations are generated by Gini for each advice method, they are not
+ * meant to be implemented or used by application code.
+ * 
+ */
+public interface AdviceDispatcher {
+
+	/**
+	 * Calls the advice method with the given arguments
+	 * 
+	 * @param advice
+	 * @param bean
+	 * @param method
+	 * @param args
+	 * @param methodInvoker
+	 * @return advice result, boxed if primitive, null if void
+	 */
+	Object dispatch(Object advice, Object bean, Method method, Object[] args, MethodInvoker methodInvoker);
+
+}
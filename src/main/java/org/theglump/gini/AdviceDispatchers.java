@@ -0,0 +1,139 @@
+package org.theglump.gini;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+
+import net.sf.cglib.core.AbstractClassGenerator;
+import net.sf.cglib.core.ClassEmitter;
+import net.sf.cglib.core.CodeEmitter;
+import net.sf.cglib.core.Constants;
+import net.sf.cglib.core.EmitUtils;
+import net.sf.cglib.core.ReflectUtils;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * Creates {@link AdviceDispatcher}s.
+ * 
+ * A class calling the advice method directly is generated with cglib for
+ * public methods of public advices, other advice methods are called by
+ * reflection, except built-in ones which have their own dispatcher. Typed
+ * advices are dispatched by {@link TypedAdvices}. Both dispatchers rethrow
+ * the exceptions of the advice as is, checked ones included.
+ * 
+ */
+class AdviceDispatchers {
+
+	private static final Class<?>[] PARAMETER_TYPES = new Class<?>[] { Object.class, Method.class, Object[].class, MethodInvoker.class };
+
+	private AdviceDispatchers() {
+	}
+
+	/**
+	 * @param adviceMethod
+	 * @return the dispatcher of the given advice method
+	 * @throws GiniException
+	 *             if the advice method does not take the arguments of
+	 *             {@link AdviceDispatcher#dispatch}
+	 */
+	static AdviceDispatcher forMethod(Method adviceMethod) {
+		if (adviceMethod.equals(CachingAdvice.METHOD)) {
+			return CachingAdvice.DISPATCHER;
+		}
+		if (TypedAdvices.isTyped(adviceMethod)) {
+			return TypedAdvices.dispatcher(adviceMethod);
+		}
+		if (!Arrays.equals(adviceMethod.getParameterTypes(), PARAMETER_TYPES)) {
+			throw new GiniException("Advice " + adviceMethod + " must take (Object bean, Method method, Object[] args, MethodInvoker methodInvoker)");
+		}
+		if (Modifier.isPublic(adviceMethod.getModifiers()) && Modifier.isPublic(adviceMethod.getDeclaringClass().getModifiers())) {
+			return new Generator(adviceMethod).create();
+		}
+		return new ReflectiveDispatcher(adviceMethod);
+	}
+
+	private static class Generator extends AbstractClassGenerator {
+
+		private static final Source SOURCE = new Source(AdviceDispatcher.class.getName());
+		private static final Type DISPATCHER = Type.getType(AdviceDispatcher.class);
+
+		private final Method adviceMethod;
+
+		Generator(Method adviceMethod) {
+			super(SOURCE);
+			this.adviceMethod = adviceMethod;
+			setNamePrefix(adviceMethod.getDeclaringClass().getName());
+		}
+
+		AdviceDispatcher create() {
+			return (AdviceDispatcher) super.create(adviceMethod);
+		}
+
+		@Override
+		public void generateClass(ClassVisitor v) {
+			ClassEmitter ce = new ClassEmitter(v);
+			ce.begin_class(Constants.V1_2, Constants.ACC_PUBLIC, getClassName(), Constants.TYPE_OBJECT, new Type[] { DISPATCHER }, Constants.SOURCE_FILE);
+			EmitUtils.null_constructor(ce);
+			CodeEmitter e = ce.begin_method(Constants.ACC_PUBLIC, ReflectUtils.getSignature(dispatchMethod()), null);
+			e.load_arg(0);
+			e.checkcast(Type.getType(adviceMethod.getDeclaringClass()));
+			Class<?>[] parameterTypes = adviceMethod.getParameterTypes();
+			for (int i = 0; i < parameterTypes.length; i++) {
+				e.load_arg(i + 1);
+				e.checkcast(Type.getType(parameterTypes[i]));
+			}
+			e.invoke(ReflectUtils.getMethodInfo(adviceMethod));
+			// pushes null for void methods
+			e.box(Type.getType(adviceMethod.getReturnType()));
+			e.return_value();
+			e.end_method();
+			ce.end_class();
+		}
+
+		private static Method dispatchMethod() {
+			return AdviceDispatcher.class.getMethods()[0];
+		}
+
+		@Override
+		protected ClassLoader getDefaultClassLoader() {
+			return adviceMethod.getDeclaringClass().getClassLoader();
+		}
+
+		@Override
+		protected Object firstInstance(@SuppressWarnings("rawtypes") Class type) {
+			return ReflectUtils.newInstance(type);
+		}
+
+		@Override
+		protected Object nextInstance(Object instance) {
+			return instance;
+		}
+
+	}
+
+	private static class ReflectiveDispatcher implements AdviceDispatcher {
+
+		private final Method adviceMethod;
+
+		ReflectiveDispatcher(Method adviceMethod) {
+			this.adviceMethod = adviceMethod;
+			adviceMethod.setAccessible(true);
+		}
+
+		@Override
+		public Object dispatch(Object advice, Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+			try {
+				return adviceMethod.invoke(advice, bean, method, args, methodInvoker);
+			} catch (InvocationTargetException e) {
+				throw Reflections.<RuntimeException> sneakyThrow(e.getCause());
+			} catch (IllegalAccessException e) {
+				throw new GiniException(e);
+			}
+		}
+
+	}
+
+}
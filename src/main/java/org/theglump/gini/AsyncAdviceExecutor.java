@@ -0,0 +1,143 @@
+package org.theglump.gini;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.theglump.gini.annotation.AfterAsync;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the {@link AfterAsync} advices of a context on an executor. At most
+ * <i>capacity</i> advices are pending at once : beyond that, callers wait or
+ * the advice is dropped, depending on {@link AfterAsync#overflow()}.
+ * 
+ * When no executor is given, advices are run by a single daemon thread
+ * created on first use and stopped by {@link #shutdown()}.
+ * 
+ */
+class AsyncAdviceExecutor {
+
+	private static final Class<?>[] PARAMETER_TYPES = new Class<?>[] { Object.class, Method.class, Object[].class, Object.class, Throwable.class };
+
+	private final Semaphore permits;
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final boolean ownsExecutor;
+	private volatile ExecutorService executor;
+
+	AsyncAdviceExecutor(ExecutorService executor, int capacity) {
+		if (capacity < 1) {
+			throw new GiniException("Capacity of async advices must be positive : " + capacity);
+		}
+		this.permits = new Semaphore(capacity);
+		this.executor = executor;
+		this.ownsExecutor = executor == null;
+	}
+
+	/**
+	 * @param adviceMethod
+	 * @throws GiniException
+	 *             if the async advice method does not take (Object bean,
+	 *             Method method, Object[] args, Object result, Throwable
+	 *             error)
+	 */
+	static void checkAdviceMethod(Method adviceMethod) {
+		if (!Arrays.equals(adviceMethod.getParameterTypes(), PARAMETER_TYPES)) {
+			throw new GiniException("Async advice " + adviceMethod
+					+ " must take (Object bean, Method method, Object[] args, Object result, Throwable error)");
+		}
+	}
+
+	/**
+	 * Schedules the given advice after a call of an advised method
+	 */
+	void submit(final Interceptor interceptor, final Object bean, final Method method, final Object[] args, final Object result,
+			final Throwable error) {
+		if (!acquire(interceptor.getOverflow())) {
+			dropped.incrementAndGet();
+			return;
+		}
+		try {
+			executor().execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						interceptor.getMethod().invoke(interceptor.getAdvice(), bean, method, args, result, error);
+					} catch (IllegalAccessException e) {
+						failed.incrementAndGet();
+					} catch (InvocationTargetException e) {
+						failed.incrementAndGet();
+					} finally {
+						permits.release();
+					}
+				}
+
+			});
+		} catch (RejectedExecutionException e) {
+			permits.release();
+			dropped.incrementAndGet();
+		}
+	}
+
+	private boolean acquire(AfterAsync.Overflow overflow) {
+		if (overflow == AfterAsync.Overflow.DROP) {
+			return permits.tryAcquire();
+		}
+		try {
+			permits.acquire();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private ExecutorService executor() {
+		ExecutorService executor = this.executor;
+		if (executor == null) {
+			synchronized (this) {
+				executor = this.executor;
+				if (executor == null) {
+					executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setDaemon(true).setNameFormat("gini-async-%d").build());
+					this.executor = executor;
+				}
+			}
+		}
+		return executor;
+	}
+
+	/**
+	 * @return the number of advices not called because the queue was full,
+	 *         the caller was interrupted or the executor rejected them
+	 */
+	long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * @return the number of advices which threw an exception, nobody being
+	 *         there to catch it
+	 */
+	long getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * Stops the default executor once pending advices are done, a given
+	 * executor is left to its owner
+	 */
+	synchronized void shutdown() {
+		if (ownsExecutor && executor != null) {
+			executor.shutdown();
+		}
+	}
+
+}
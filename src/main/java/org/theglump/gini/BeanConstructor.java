@@ -0,0 +1,90 @@
+package org.theglump.gini;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+import org.theglump.gini.annotation.Inject;
+
+/**
+ * Constructor used to create the beans of a class : the constructor
+ * annotated with {@link Inject}, or the no-arg constructor. It is looked up
+ * and made accessible once, its parameters being resolved by type from the
+ * {@link BeanStore} each time a bean is created.
+ * 
+ */
+class BeanConstructor {
+
+	private static final Object[] NO_ARGS = new Object[0];
+
+	private final Constructor<?> constructor;
+	private final Class<?>[] parameterTypes;
+
+	private BeanConstructor(Constructor<?> constructor) {
+		this.constructor = constructor;
+		this.parameterTypes = constructor.getParameterTypes();
+		if (!constructor.isAccessible()) {
+			constructor.setAccessible(true);
+		}
+	}
+
+	/**
+	 * @param clazz
+	 * @return the constructor of the given class
+	 * @throws GiniException
+	 *             if several constructors are annotated with {@link Inject}
+	 *             or if none is and there is no no-arg constructor
+	 */
+	static BeanConstructor forClass(Class<?> clazz) {
+		Constructor<?> injectConstructor = null;
+		for (Constructor<?> constructor : clazz.getDeclaredConstructors()) {
+			if (constructor.isAnnotationPresent(Inject.class)) {
+				if (injectConstructor != null) {
+					throw new GiniException("Several constructors of " + clazz.getName() + " are annotated with @Inject");
+				}
+				injectConstructor = constructor;
+			}
+		}
+		if (injectConstructor != null) {
+			return new BeanConstructor(injectConstructor);
+		}
+		try {
+			return new BeanConstructor(clazz.getDeclaredConstructor());
+		} catch (NoSuchMethodException e) {
+			throw new GiniException(clazz.getName() + " must have a no-arg constructor or a constructor annotated with @Inject");
+		}
+	}
+
+	/**
+	 * @return the types of the dependencies of the constructor
+	 */
+	Class<?>[] getParameterTypes() {
+		return parameterTypes;
+	}
+
+	/**
+	 * Resolves the dependencies of the constructor, by type only
+	 */
+	Object[] resolveArguments(BeanStore store) {
+		if (parameterTypes.length == 0) {
+			return NO_ARGS;
+		}
+		Object[] args = new Object[parameterTypes.length];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = store.getInjectableBean(parameterTypes[i], null);
+		}
+		return args;
+	}
+
+	Object newInstance(Object[] args) {
+		try {
+			return constructor.newInstance(args);
+		} catch (InvocationTargetException e) {
+			throw Reflections.propagate(e.getCause());
+		} catch (InstantiationException e) {
+			throw new GiniException(e);
+		} catch (IllegalAccessException e) {
+			throw new GiniException(e);
+		}
+	}
+
+}
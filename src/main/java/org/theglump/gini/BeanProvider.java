@@ -0,0 +1,91 @@
+package org.theglump.gini;
+
+import static org.reflections.ReflectionUtils.getAllSuperTypes;
+
+import java.util.List;
+
+import net.sf.cglib.proxy.Callback;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Candidate of the {@link BeanStore} standing for beans which are not
+ * created at bootstrap : lazy singletons, and beans of the other scopes.
+ * Beans are created and injected on demand through an {@link Initializer}.
+ * 
+ */
+abstract class BeanProvider {
+
+	/**
+	 * Creates and injects beans on behalf of a provider
+	 */
+	interface Initializer {
+
+		Object create(Class<?> clazz);
+
+		void inject(Object bean);
+
+		/**
+		 * Creates a proxy subclassing the given bean class, its constructor
+		 * being called with the arguments resolved for the bean
+		 */
+		Object createClassProxy(Class<?> clazz, Callback callback);
+
+	}
+
+	private final Class<?> beanClass;
+	private final Initializer initializer;
+	private final Class<?>[] interfaces;
+
+	BeanProvider(Class<?> beanClass, Initializer initializer) {
+		this.beanClass = beanClass;
+		this.initializer = initializer;
+		List<Class<?>> interfaces = Lists.newArrayList();
+		for (Class<?> superType : getAllSuperTypes(beanClass)) {
+			if (superType.isInterface()) {
+				interfaces.add(superType);
+			}
+		}
+		this.interfaces = interfaces.toArray(new Class<?>[interfaces.size()]);
+	}
+
+	Class<?> getBeanClass() {
+		return beanClass;
+	}
+
+	/**
+	 * @return the interfaces implemented by the bean class
+	 */
+	Class<?>[] getInterfaces() {
+		return interfaces;
+	}
+
+	Initializer getInitializer() {
+		return initializer;
+	}
+
+	/**
+	 * Returns the bean requested from the context
+	 * 
+	 * @return bean
+	 */
+	abstract Object get();
+
+	/**
+	 * Returns the object to inject in a field of the given type
+	 * 
+	 * @param fieldType
+	 * @return bean or proxy standing for it
+	 */
+	abstract Object getInjectable(Class<?> fieldType);
+
+	/**
+	 * @return a new bean, injected
+	 */
+	Object newBean() {
+		Object bean = initializer.create(beanClass);
+		initializer.inject(bean);
+		return bean;
+	}
+
+}
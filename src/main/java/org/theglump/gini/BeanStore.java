@@ -8,7 +8,9 @@ import java.util.*;
 
 import javax.annotation.Nonnull;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
@@ -17,25 +19,104 @@ import com.google.common.collect.Sets;
 /**
  * Stores managed beans and offers convenience methods to query them
  * 
+ * Lazy beans and beans of other scopes than singleton are stored as
+ * {@link BeanProvider}s, creating them when requested.
+ * 
+ * Once the context is built, the store is frozen : beans are then looked up
+ * in an immutable table, precomputed for each type, which can be read
+ * concurrently without locking nor allocating.
+ * 
+ * The store of a child context has a parent store, which must be frozen :
+ * types having no bean in the child store are looked up in the parent one.
+ * The beans of the parent are neither copied nor indexed again.
+ * 
  * @author sebastien.rozange
  *
  */
 class BeanStore {
 
-	private final HashMultimap<Class<?>, Object> typeToBeans = HashMultimap.create();
-	private final Set<Object> beans = Sets.newHashSet();
-	private final Map<Class<?>, SetMultimap<Method, Interceptor>> interceptedMethods = Maps.newHashMap();
-	private final Set<Interceptor> interceptors = Sets.newHashSet();
+	private volatile HashMultimap<Class<?>, Object> typeToBeans;
+	private volatile Set<Object> beans;
+	private volatile Map<Class<?>, SetMultimap<Method, Interceptor>> interceptedMethods = Maps.newHashMap();
+	private volatile Set<Interceptor> interceptors = Sets.newHashSet();
+	private final BeanStore parent;
+	private volatile FrozenBeans frozenBeans;
 
 	private static final Set<Interceptor> EMPTY_INTERCEPTOR_SET = Collections.unmodifiableSet(new HashSet<Interceptor>());
 	private static final SetMultimap<Method, Interceptor> EMPTY_INTERCEPTOR_FOR_METHODS_MAP = ImmutableSetMultimap.of();
 
+	BeanStore() {
+		this(null);
+	}
+
+	/**
+	 * @param parent
+	 *            frozen store looked up for types having no bean in this
+	 *            store, may be null
+	 */
+	BeanStore(BeanStore parent) {
+		this(parent, HashMultimap.<Class<?>, Object> create(), Sets.newHashSet());
+		Preconditions.checkArgument(parent == null || parent.frozenBeans != null, "Parent store must be frozen");
+	}
+
+	private BeanStore(BeanStore parent, HashMultimap<Class<?>, Object> typeToBeans, Set<Object> beans) {
+		this.parent = parent;
+		this.typeToBeans = typeToBeans;
+		this.beans = beans;
+	}
+
+	/**
+	 * Returns a view of this store where beans registered since the store was
+	 * last frozen are visible, while other threads keep on reading the frozen
+	 * table. The view shares the interceptors of this store at the time it is
+	 * created.
+	 */
+	protected BeanStore unfrozen() {
+		BeanStore view = new BeanStore(parent, typeToBeans, beans);
+		view.interceptedMethods = interceptedMethods;
+		view.interceptors = interceptors;
+		return view;
+	}
+
+	/**
+	 * Returns a copy of this store, to be changed while other threads keep on
+	 * reading this store, then published by {@link #publish(BeanStore)}. The
+	 * copy shares the interceptors of this store until they are replaced.
+	 */
+	protected BeanStore copy() {
+		BeanStore copy = new BeanStore(parent, HashMultimap.create(typeToBeans), Sets.newHashSet(beans));
+		copy.interceptedMethods = interceptedMethods;
+		copy.interceptors = interceptors;
+		return copy;
+	}
+
+	/**
+	 * Makes the beans and interceptors of the given frozen copy of this
+	 * store those of this store. Readers see the new beans once the frozen
+	 * table is replaced, which is done last.
+	 */
+	protected void publish(BeanStore copy) {
+		Preconditions.checkArgument(copy.parent == parent && copy.frozenBeans != null, "Only a frozen copy can be published");
+		this.typeToBeans = copy.typeToBeans;
+		this.beans = copy.beans;
+		this.interceptedMethods = copy.interceptedMethods;
+		this.interceptors = copy.interceptors;
+		this.frozenBeans = copy.frozenBeans;
+	}
+
 	protected void registerBean(Object bean) {
-		Class<?> clazz = getProxifiedClass(bean.getClass());
 		beans.add(bean);
-		typeToBeans.put(clazz, bean);
+		registerCandidate(getProxifiedClass(bean.getClass()), bean);
+	}
+
+	protected void registerBeanProvider(BeanProvider provider) {
+		registerCandidate(provider.getBeanClass(), provider);
+	}
+
+	private void registerCandidate(Class<?> clazz, Object candidate) {
+		typeToBeans.put(clazz, candidate);
 		for (Class<?> superType : getAllSuperTypes(clazz)) {
-			typeToBeans.put(superType, bean);
+			typeToBeans.put(superType, candidate);
 		}
 	}
 
@@ -45,25 +126,150 @@ class BeanStore {
 
 	@SuppressWarnings("unchecked")
 	protected <T> T getBean(Class<T> clazz, String concreteClassName) {
+		Object candidate = getCandidate(clazz, concreteClassName);
+		if (candidate instanceof BeanProvider) {
+			return (T) ((BeanProvider) candidate).get();
+		}
+		return (T) candidate;
+	}
+
+	/**
+	 * @return the provider of the bean of the given type, null if the bean is
+	 *         an eager singleton
+	 */
+	protected BeanProvider getBeanProvider(Class<?> clazz) {
+		Object candidate = getCandidate(clazz, null);
+		return candidate instanceof BeanProvider ? (BeanProvider) candidate : null;
+	}
+
+	/**
+	 * Same as {@link #getBean(Class, String)}, except that providers return
+	 * the object to inject in a field of the given type, see
+	 * {@link BeanProvider#getInjectable(Class)}
+	 */
+	protected Object getInjectableBean(Class<?> clazz, String concreteClassName) {
+		return getInjectable(getCandidate(clazz, concreteClassName), clazz);
+	}
+
+	/**
+	 * Resolves the beans and providers to inject in fields of the given types
+	 * and names, see {@link #getInjectable(Object, Class)}
+	 */
+	protected Object[] getCandidates(Class<?>[] types, String[] names) {
+		Object[] candidates = new Object[types.length];
+		for (int i = 0; i < types.length; i++) {
+			candidates[i] = getCandidate(types[i], names[i]);
+		}
+		return candidates;
+	}
+
+	/**
+	 * @return the object to inject in a field of the given type for the given
+	 *         candidate returned by {@link #getCandidates(Class[], String[])}
+	 */
+	protected static Object getInjectable(Object candidate, Class<?> type) {
+		if (candidate instanceof BeanProvider) {
+			return ((BeanProvider) candidate).getInjectable(type);
+		}
+		return candidate;
+	}
+
+	/**
+	 * @return the table candidates are currently looked up in, null if the
+	 *         store is not frozen
+	 */
+	protected Object getFrozenTable() {
+		return frozenBeans;
+	}
+
+	/**
+	 * @param frozenTable
+	 *            returned by {@link #getFrozenTable()}
+	 * @return true if candidates resolved from the given table are still
+	 *         current : neither this store nor its parents were frozen again
+	 *         since
+	 */
+	protected boolean isCurrent(Object frozenTable) {
+		FrozenBeans frozenBeans = this.frozenBeans;
+		return frozenBeans != null && frozenBeans == frozenTable && (parent == null || parent.isCurrent(frozenBeans.parentBeans));
+	}
+
+	/**
+	 * @return true if a bean of the given type is registered in this store or
+	 *         in its parent
+	 */
+	protected boolean hasBean(Class<?> clazz) {
+		return hasOwnBean(clazz) || (parent != null && parent.hasBean(clazz));
+	}
+
+	private Object getCandidate(Class<?> clazz, String concreteClassName) {
+		if (parent != null && !hasOwnBean(clazz)) {
+			return parent.getCandidate(clazz, concreteClassName);
+		}
+		FrozenBeans frozenBeans = this.frozenBeans;
+		if (frozenBeans != null) {
+			return frozenBeans.getCandidate(clazz, concreteClassName);
+		}
 		Set<Object> beans = typeToBeans.get(clazz);
-		if (beans == null) {
+		if (beans.isEmpty()) {
 			throw new GiniException("Could not find an instance for " + clazz.getCanonicalName());
 		} else if (beans.size() == 1) {
-			return (T) beans.iterator().next();
+			return beans.iterator().next();
 		} else {
 			for (Object bean : beans) {
 				if (canInjectByName(concreteClassName, bean)) {
-					return (T) bean;
+					return bean;
 				}
 			}
 		}
 		throw new GiniException("Several instance for " + clazz.getCanonicalName() + " - could not find the matching one");
 	}
 
+	private boolean hasOwnBean(Class<?> clazz) {
+		FrozenBeans frozenBeans = this.frozenBeans;
+		return frozenBeans != null ? frozenBeans.candidatesPerType.containsKey(clazz) : typeToBeans.containsKey(clazz);
+	}
+
+	/**
+	 * Builds the read optimized table used by {@link #getBean(Class, String)}.
+	 * Beans registered afterwards are only visible once the store is frozen
+	 * again.
+	 */
+	protected void freeze() {
+		frozenBeans = new FrozenBeans(typeToBeans, parent != null ? parent.frozenBeans : null);
+	}
+
 	protected Set<Object> getBeans() {
 		return Collections.unmodifiableSet(beans);
 	}
 
+	/**
+	 * Removes the beans and providers of the given classes. They remain
+	 * visible until the store is frozen again.
+	 */
+	protected void unregister(Set<Class<?>> classes) {
+		for (Iterator<Object> it = typeToBeans.values().iterator(); it.hasNext();) {
+			if (classes.contains(beanClass(it.next()))) {
+				it.remove();
+			}
+		}
+		for (Iterator<Object> it = beans.iterator(); it.hasNext();) {
+			if (classes.contains(beanClass(it.next()))) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Replaces all the interceptors of the store at once
+	 */
+	protected void replaceInterceptors(Set<Interceptor> interceptors) {
+		BeanStore replaced = new BeanStore();
+		replaced.registerInterceptors(interceptors);
+		this.interceptedMethods = replaced.interceptedMethods;
+		this.interceptors = replaced.interceptors;
+	}
+
 	protected void registerInterceptor(Interceptor interceptor) {
 		interceptors.add(interceptor);
 		for (Method m : interceptor.getInterceptedMethods()) {
@@ -106,8 +312,75 @@ class BeanStore {
 		return interceptedMethods.containsKey(clazz);
 	}
 
-	private boolean canInjectByName(String fieldName, Object bean) {
-		return Reflections.className(getProxifiedClass(bean.getClass())).equalsIgnoreCase(fieldName);
+	private boolean canInjectByName(String fieldName, Object candidate) {
+		return Reflections.className(beanClass(candidate)).equalsIgnoreCase(fieldName);
+	}
+
+	private static Class<?> beanClass(Object candidate) {
+		if (candidate instanceof BeanProvider) {
+			return ((BeanProvider) candidate).getBeanClass();
+		}
+		return getProxifiedClass(candidate.getClass());
+	}
+
+	/**
+	 * Immutable table of the beans of each type, with the class name of each
+	 * candidate precomputed for injection by name
+	 */
+	private static class FrozenBeans {
+
+		private final ImmutableMap<Class<?>, Candidates> candidatesPerType;
+		private final FrozenBeans parentBeans;
+
+		/**
+		 * @param typeToBeans
+		 * @param parentBeans
+		 *            table of the parent store when the table is built
+		 */
+		FrozenBeans(SetMultimap<Class<?>, Object> typeToBeans, FrozenBeans parentBeans) {
+			this.parentBeans = parentBeans;
+			ImmutableMap.Builder<Class<?>, Candidates> builder = ImmutableMap.builder();
+			for (Class<?> type : typeToBeans.keySet()) {
+				builder.put(type, new Candidates(typeToBeans.get(type)));
+			}
+			this.candidatesPerType = builder.build();
+		}
+
+		Object getCandidate(Class<?> clazz, String concreteClassName) {
+			Candidates candidates = candidatesPerType.get(clazz);
+			if (candidates == null) {
+				throw new GiniException("Could not find an instance for " + clazz.getCanonicalName());
+			}
+			return candidates.getCandidate(clazz, concreteClassName);
+		}
+
+	}
+
+	private static class Candidates {
+
+		private final Object[] beans;
+		private final String[] classNames;
+
+		Candidates(Set<Object> beans) {
+			this.beans = beans.toArray();
+			this.classNames = new String[this.beans.length];
+			for (int i = 0; i < this.beans.length; i++) {
+				classNames[i] = Reflections.className(beanClass(this.beans[i]));
+			}
+		}
+
+		Object getCandidate(Class<?> clazz, String concreteClassName) {
+			if (beans.length == 1) {
+				return beans[0];
+			}
+			for (int i = 0; i < beans.length; i++) {
+				if (classNames[i].equalsIgnoreCase(concreteClassName)) {
+					return beans[i];
+				}
+			}
+			throw new GiniException("Several instance for " + clazz.getCanonicalName() + " - could not find the matching one");
+		}
+
 	}
 
 }
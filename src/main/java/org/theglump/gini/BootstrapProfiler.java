@@ -0,0 +1,170 @@
+package org.theglump.gini;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Records the wall time and the allocations of the bootstrap phases of a
+ * context and of each of its beans, see {@link BootstrapReport}. All methods
+ * do nothing when the profiler is disabled or once the report is built, so
+ * that lazy beans created afterwards are not taken into account.
+ * 
+ * Allocations are read from the <code>com.sun.management.ThreadMXBean</code>
+ * of the JVM when available, they are only counted on the thread running the
+ * phase or the bean task.
+ * 
+ */
+class BootstrapProfiler {
+
+	private static final Object THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+	private static final Method THREAD_ALLOCATED_BYTES = threadAllocatedBytesMethod();
+
+	private final boolean enabled;
+	private final List<BootstrapReport.Entry> phases = Lists.newArrayList();
+	private final Map<String, BootstrapReport.Entry> beans = Maps.newHashMap();
+	private final AtomicInteger proxyClassesGenerated = new AtomicInteger();
+	private int joinpointEvaluations;
+	private int regexEvaluations;
+	private GiniException snapshotFailure;
+	private volatile BootstrapReport report;
+
+	BootstrapProfiler(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	boolean isRecording() {
+		return enabled && report == null;
+	}
+
+	/**
+	 * @return the current time and allocations of the calling thread, null
+	 *         when not recording
+	 */
+	Sample start() {
+		return isRecording() ? new Sample(System.nanoTime(), allocatedBytes()) : null;
+	}
+
+	/**
+	 * Records a phase started at the given sample
+	 *
+	 * @return the start of the next phase
+	 */
+	Sample phase(String name, Sample start) {
+		if (start == null || !isRecording()) {
+			return null;
+		}
+		Sample end = start();
+		synchronized (this) {
+			phases.add(entry(name, start, end));
+		}
+		return end;
+	}
+
+	/**
+	 * Records a step of the bootstrap of a bean started at the given sample,
+	 * steps of a same bean are summed
+	 */
+	void bean(Class<?> clazz, Sample start) {
+		if (start == null || !isRecording()) {
+			return;
+		}
+		BootstrapReport.Entry entry = entry(clazz.getName(), start, start());
+		synchronized (this) {
+			BootstrapReport.Entry previous = beans.get(entry.getName());
+			beans.put(entry.getName(), previous != null ? previous.plus(entry) : entry);
+		}
+	}
+
+	void proxyClassGenerated() {
+		if (isRecording()) {
+			proxyClassesGenerated.incrementAndGet();
+		}
+	}
+
+	synchronized void joinpointEvaluations(int joinpointEvaluations, int regexEvaluations) {
+		if (isRecording()) {
+			this.joinpointEvaluations += joinpointEvaluations;
+			this.regexEvaluations += regexEvaluations;
+		}
+	}
+
+	synchronized void snapshotFailure(GiniException snapshotFailure) {
+		if (isRecording()) {
+			this.snapshotFailure = snapshotFailure;
+		}
+	}
+
+	/**
+	 * Builds the report, the bootstrap having started at the given sample.
+	 * Nothing is recorded afterwards.
+	 */
+	synchronized void finish(Sample start) {
+		if (start == null || !isRecording()) {
+			return;
+		}
+		report = new BootstrapReport(entry("bootstrap", start, start()), phases, beans.values(), proxyClassesGenerated.get(), joinpointEvaluations,
+				regexEvaluations, snapshotFailure);
+	}
+
+	/**
+	 * @return the report, null if the profiler is disabled
+	 */
+	BootstrapReport getReport() {
+		return report;
+	}
+
+	private static BootstrapReport.Entry entry(String name, Sample start, Sample end) {
+		long bytes = start.bytes >= 0 && end.bytes >= 0 ? end.bytes - start.bytes : -1;
+		return new BootstrapReport.Entry(name, end.nanos - start.nanos, bytes);
+	}
+
+	private static Method threadAllocatedBytesMethod() {
+		try {
+			Class<?> sunThreadMXBean = Class.forName("com.sun.management.ThreadMXBean");
+			return sunThreadMXBean.isInstance(THREAD_MX_BEAN) ? sunThreadMXBean.getMethod("getThreadAllocatedBytes", long.class) : null;
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return bytes allocated by the current thread so far, -1 if unknown
+	 */
+	private static long allocatedBytes() {
+		if (THREAD_ALLOCATED_BYTES == null) {
+			return -1;
+		}
+		try {
+			return (Long) THREAD_ALLOCATED_BYTES.invoke(THREAD_MX_BEAN, Thread.currentThread().getId());
+		} catch (IllegalAccessException e) {
+			return -1;
+		} catch (InvocationTargetException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Time and allocations of a thread at a given moment
+	 */
+	static class Sample {
+
+		private final long nanos;
+		private final long bytes;
+
+		private Sample(long nanos, long bytes) {
+			this.nanos = nanos;
+			this.bytes = bytes;
+		}
+
+	}
+
+}
@@ -0,0 +1,182 @@
+package org.theglump.gini;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+
+/**
+ * Where the bootstrap of a context built with
+ * {@link Gini.Builder#profile(boolean)} spent its time : wall time and
+ * allocations of each phase (index, interceptors, bean creation, injection)
+ * and of each bean, along with the number of proxy classes generated and of
+ * joinpoint evaluations.
+ * 
+ * The time of a bean is the sum of its creation, including the generation of
+ * its proxy class, and of its injection. The report also tells why the
+ * snapshot of the context could not be written, if so. Allocations are -1 when the JVM does
+ * not measure them, and only cover the thread running a phase : with a
+ * bootstrap executor, allocations of beans are not counted in phases.
+ * 
+ */
+public class BootstrapReport {
+
+	private static final int SLOWEST_BEANS_IN_SUMMARY = 10;
+
+	private static final Ordering<Entry> SLOWEST_FIRST = new Ordering<Entry>() {
+
+		@Override
+		public int compare(Entry left, Entry right) {
+			return left.nanos != right.nanos ? (left.nanos > right.nanos ? -1 : 1) : left.name.compareTo(right.name);
+		}
+
+	};
+
+	private final Entry total;
+	private final List<Entry> phases;
+	private final List<Entry> beans;
+	private final int proxyClassesGenerated;
+	private final int joinpointEvaluations;
+	private final int regexEvaluations;
+	private final GiniException snapshotFailure;
+
+	BootstrapReport(Entry total, List<Entry> phases, Collection<Entry> beans, int proxyClassesGenerated, int joinpointEvaluations,
+			int regexEvaluations, GiniException snapshotFailure) {
+		this.total = total;
+		this.phases = ImmutableList.copyOf(phases);
+		this.beans = SLOWEST_FIRST.immutableSortedCopy(beans);
+		this.proxyClassesGenerated = proxyClassesGenerated;
+		this.joinpointEvaluations = joinpointEvaluations;
+		this.regexEvaluations = regexEvaluations;
+		this.snapshotFailure = snapshotFailure;
+	}
+
+	/**
+	 * @return the whole bootstrap
+	 */
+	public Entry getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return the phases, in execution order
+	 */
+	public List<Entry> getPhases() {
+		return phases;
+	}
+
+	/**
+	 * @return the beans created at bootstrap, slowest first
+	 */
+	public List<Entry> getBeans() {
+		return beans;
+	}
+
+	/**
+	 * @param count
+	 * @return at most count beans, slowest first
+	 */
+	public List<Entry> getSlowestBeans(int count) {
+		return beans.subList(0, Math.min(count, beans.size()));
+	}
+
+	public int getProxyClassesGenerated() {
+		return proxyClassesGenerated;
+	}
+
+	/**
+	 * @return the number of evaluations of a joinpoint against a method path
+	 */
+	public int getJoinpointEvaluations() {
+		return joinpointEvaluations;
+	}
+
+	/**
+	 * @return the number of joinpoint evaluations done by a regular
+	 *         expression
+	 */
+	public int getRegexEvaluations() {
+		return regexEvaluations;
+	}
+
+	/**
+	 * @return why the snapshot could not be written, null if it was written
+	 *         or not configured
+	 */
+	public GiniException getSnapshotFailure() {
+		return snapshotFailure;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder report = new StringBuilder();
+		report.append("Bootstrap : ").append(total.format()).append('\n');
+		report.append("Phases :\n");
+		for (Entry phase : phases) {
+			report.append("  ").append(phase).append('\n');
+		}
+		report.append("Slowest beans :\n");
+		for (Entry bean : getSlowestBeans(SLOWEST_BEANS_IN_SUMMARY)) {
+			report.append("  ").append(bean).append('\n');
+		}
+		report.append("Proxy classes generated : ").append(proxyClassesGenerated).append('\n');
+		report.append("Joinpoint evaluations : ").append(joinpointEvaluations).append(" (regex : ").append(regexEvaluations).append(')');
+		if (snapshotFailure != null) {
+			report.append('\n').append("Snapshot not written : ").append(snapshotFailure.getMessage());
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Wall time and allocations of a phase or of a bean
+	 */
+	public static class Entry {
+
+		private final String name;
+		private final long nanos;
+		private final long allocatedBytes;
+
+		Entry(String name, long nanos, long allocatedBytes) {
+			this.name = name;
+			this.nanos = nanos;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		/**
+		 * @return the name of the phase or the class name of the bean
+		 */
+		public String getName() {
+			return name;
+		}
+
+		public long getNanos() {
+			return nanos;
+		}
+
+		/**
+		 * @return the allocated bytes, -1 if unknown
+		 */
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+
+		Entry plus(Entry other) {
+			long bytes = allocatedBytes >= 0 && other.allocatedBytes >= 0 ? allocatedBytes + other.allocatedBytes : -1;
+			return new Entry(name, nanos + other.nanos, bytes);
+		}
+
+		private String format() {
+			String time = String.format(Locale.ROOT, "%.3f ms", nanos / 1e6);
+			return allocatedBytes >= 0 ? time + String.format(Locale.ROOT, ", %d bytes allocated", allocatedBytes) : time;
+		}
+
+		@Override
+		public String toString() {
+			return name + " : " + format();
+		}
+
+	}
+
+}
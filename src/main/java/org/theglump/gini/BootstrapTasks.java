@@ -0,0 +1,71 @@
+package org.theglump.gini;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+
+/**
+ * Runs a bootstrap step on each element of a list, one task per element, on
+ * a given executor.
+ * 
+ * Results are returned in the order of the elements. Failures are reported
+ * once every task is done, in the same order, so that a failing bootstrap
+ * always reports the same errors whatever the scheduling of tasks.
+ * 
+ */
+class BootstrapTasks {
+
+	private BootstrapTasks() {
+	}
+
+	/**
+	 * @param executor
+	 * @param step
+	 *            description of the step, used in error messages
+	 * @param elements
+	 * @param task
+	 *            applied to each element
+	 * @param naming
+	 *            name of an element, used in error messages
+	 * @return results of the task, in the order of elements
+	 */
+	static <T, R> List<R> run(ExecutorService executor, String step, List<T> elements, final Function<? super T, R> task,
+			Function<? super T, String> naming) {
+		List<Future<R>> futures = Lists.newArrayListWithCapacity(elements.size());
+		for (final T element : elements) {
+			futures.add(executor.submit(new Callable<R>() {
+
+				@Override
+				public R call() {
+					return task.apply(element);
+				}
+
+			}));
+		}
+
+		List<R> results = Lists.newArrayListWithCapacity(elements.size());
+		StringBuilder errors = new StringBuilder();
+		Throwable firstError = null;
+		for (int i = 0; i < futures.size(); i++) {
+			try {
+				results.add(futures.get(i).get());
+			} catch (ExecutionException e) {
+				errors.append("\n - ").append(naming.apply(elements.get(i))).append(" : ").append(e.getCause());
+				firstError = firstError != null ? firstError : e.getCause();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new GiniException("Interrupted while waiting for " + step, e);
+			}
+		}
+		if (firstError != null) {
+			throw new GiniException("Could not " + step + errors, firstError);
+		}
+		return results;
+	}
+
+}
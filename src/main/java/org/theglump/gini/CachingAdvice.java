@@ -0,0 +1,105 @@
+package org.theglump.gini;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import org.theglump.gini.annotation.Cached;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Built-in advice of the methods annotated with {@link Cached}, holding the
+ * cache of one method. Concurrent misses on the same arguments are coalesced
+ * by the cache into a single call of the method.
+ *
+ */
+class CachingAdvice {
+
+	/**
+	 * The advice method, shared by every caching advice
+	 */
+	static final Method METHOD = Reflections.getDeclaredMethod(CachingAdvice.class, "cache", Object.class, Method.class, Object[].class, MethodInvoker.class);
+
+	/**
+	 * Calls caching advices directly, their class not being public
+	 */
+	static final AdviceDispatcher DISPATCHER = new AdviceDispatcher() {
+
+		@Override
+		public Object dispatch(Object advice, Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+			return ((CachingAdvice) advice).cache(bean, method, args, methodInvoker);
+		}
+
+	};
+
+	private final Cache<Key, Optional<Object>> cache;
+
+	CachingAdvice(Cached cached) {
+		CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(cached.maximumSize()).recordStats();
+		if (cached.expireAfterWrite() > 0) {
+			builder.expireAfterWrite(cached.expireAfterWrite(), cached.timeUnit());
+		}
+		this.cache = builder.build();
+	}
+
+	Object cache(Object bean, Method method, final Object[] args, final MethodInvoker methodInvoker) {
+		try {
+			return cache.get(new Key(args), new Callable<Optional<Object>>() {
+
+				@Override
+				public Optional<Object> call() {
+					return Optional.fromNullable(methodInvoker.invokeMethod(args));
+				}
+
+			}).orNull();
+		} catch (ExecutionException e) {
+			throw Reflections.<RuntimeException> sneakyThrow(e.getCause());
+		} catch (UncheckedExecutionException e) {
+			throw Reflections.<RuntimeException> sneakyThrow(e.getCause());
+		} catch (ExecutionError e) {
+			throw Reflections.<RuntimeException> sneakyThrow(e.getCause());
+		}
+	}
+
+	CacheStats stats() {
+		return cache.stats();
+	}
+
+	void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Arguments of a call, arrays being compared by content. Arguments are
+	 * copied so that callers reusing their array do not alter cached keys.
+	 */
+	private static class Key {
+
+		private final Object[] args;
+		private final int hashCode;
+
+		Key(Object[] args) {
+			this.args = args.clone();
+			this.hashCode = Arrays.deepHashCode(this.args);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && Arrays.deepEquals(args, ((Key) obj).args);
+		}
+
+	}
+
+}
@@ -0,0 +1,552 @@
+package org.theglump.gini;
+
+import static org.reflections.ReflectionUtils.getAllMethods;
+import static org.reflections.ReflectionUtils.withAnnotation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.reflections.scanners.FieldAnnotationsScanner;
+import org.reflections.scanners.SubTypesScanner;
+import org.reflections.scanners.TypeAnnotationsScanner;
+import org.theglump.gini.annotation.Advice;
+import org.theglump.gini.annotation.AfterAsync;
+import org.theglump.gini.annotation.Around;
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+import org.theglump.gini.processor.IndexProcessor;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+
+/**
+ * Metadata collected by a single classpath scan : managed types, advices and
+ * the joinpoints of their {@link Around} and {@link AfterAsync} methods,
+ * fields annotated with {@link Inject} and public methods of managed types,
+ * indexed by annotation on demand, along with the {@link GeneratedProxy}
+ * classes generated for them at build time.
+ *
+ * The index is shared by bean registration and interceptor computation so
+ * that a context scans the classpath only once. It can also be loaded from
+ * the index written at build time by {@link IndexProcessor}, in which case
+ * the classpath is not scanned at all, or from a {@link ContextSnapshot}.
+ *
+ */
+class ClassIndex {
+
+	private final Set<String> packageNames = Sets.newLinkedHashSet();
+	private final Set<Class<?>> managedTypes = Sets.newHashSet();
+	private final Set<Class<?>> adviceTypes = Sets.newHashSet();
+	private final Map<Class<?>, Set<Field>> injectFields = Maps.newHashMap();
+	private final Map<Class<?>, Set<Method>> publicMethods = Maps.newHashMap();
+	private final Map<Method, String> joinpoints = Maps.newHashMap();
+	private final Map<Class<?>, Class<?>> generatedProxies = Maps.newHashMap();
+	/**
+	 * Names of the annotated public methods of the managed types loaded from
+	 * an index written by {@link IndexProcessor}
+	 */
+	private final Map<Class<?>, Set<String>> annotatedMethodNames = Maps.newHashMap();
+	private SetMultimap<Class<? extends Annotation>, Method> annotatedMethods;
+	private SetMultimap<Class<? extends Annotation>, Class<?>> annotatedTypes;
+
+	/**
+	 * Scans the given packages one after the other
+	 *
+	 * @param packageNames
+	 * @return the merged index
+	 */
+	static ClassIndex scan(String... packageNames) {
+		ClassIndex index = new ClassIndex();
+		for (String packageName : packageNames) {
+			index.merge(scanPackage(packageName));
+		}
+		return index;
+	}
+
+	/**
+	 * Scans each of the given packages in its own task on the given executor
+	 * (typically a fork-join pool), then merges the results
+	 *
+	 * @param executor
+	 * @param packageNames
+	 * @return the merged index
+	 */
+	static ClassIndex scan(ExecutorService executor, String... packageNames) {
+		List<Callable<ClassIndex>> tasks = Lists.newArrayList();
+		for (final String packageName : packageNames) {
+			tasks.add(new Callable<ClassIndex>() {
+
+				@Override
+				public ClassIndex call() {
+					return scanPackage(packageName);
+				}
+
+			});
+		}
+		ClassIndex index = new ClassIndex();
+		try {
+			for (Future<ClassIndex> future : executor.invokeAll(tasks)) {
+				index.merge(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GiniException("Interrupted while scanning " + Arrays.toString(packageNames), e);
+		} catch (ExecutionException e) {
+			throw new GiniException("Could not scan packages", e.getCause());
+		}
+		return index;
+	}
+
+	private static ClassIndex scanPackage(String packageName) {
+		org.reflections.Reflections reflections = new org.reflections.Reflections(packageName, new TypeAnnotationsScanner(), new SubTypesScanner(),
+				new FieldAnnotationsScanner());
+		ClassIndex index = new ClassIndex();
+		index.packageNames.add(packageName);
+		for (Class<?> clazz : reflections.getTypesAnnotatedWith(Managed.class)) {
+			index.addManagedType(clazz);
+		}
+		for (Class<? extends GeneratedProxy> clazz : reflections.getSubTypesOf(GeneratedProxy.class)) {
+			index.generatedProxies.put(clazz.getSuperclass(), clazz);
+		}
+		for (Class<?> clazz : reflections.getTypesAnnotatedWith(Advice.class)) {
+			index.adviceTypes.add(clazz);
+			for (Method aroundMethod : getAllMethods(clazz, withAnnotation(Around.class))) {
+				index.joinpoints.put(aroundMethod, aroundMethod.getAnnotation(Around.class).joinpoint());
+			}
+			for (Method asyncMethod : getAllMethods(clazz, withAnnotation(AfterAsync.class))) {
+				index.joinpoints.put(asyncMethod, asyncMethod.getAnnotation(AfterAsync.class).joinpoint());
+			}
+		}
+		for (Field field : reflections.getFieldsAnnotatedWith(Inject.class)) {
+			index.addInjectField(field);
+		}
+		return index;
+	}
+
+	/**
+	 * Loads the entries of the given packages from the indexes written by
+	 * {@link IndexProcessor} and found with the given class loader. Only the
+	 * packages having entries in an index, and whose classpath locations all
+	 * have an index, are part of the returned index : a package split between
+	 * an indexed jar and a jar compiled without the processor is scanned.
+	 *
+	 * @param classLoader
+	 * @param packageNames
+	 * @return the loaded index, empty when no index is found
+	 */
+	static ClassIndex load(ClassLoader classLoader, String... packageNames) {
+		ClassIndex index = new ClassIndex();
+		try {
+			List<URL> resources = Collections.list(classLoader.getResources(IndexProcessor.INDEX_RESOURCE));
+			Set<String> indexedRoots = Sets.newHashSet();
+			for (URL resource : resources) {
+				indexedRoots.add(root(resource, IndexProcessor.INDEX_RESOURCE));
+			}
+			List<String> indexedPackageNames = Lists.newArrayList();
+			for (String packageName : packageNames) {
+				if (isIndexed(classLoader, packageName, indexedRoots)) {
+					indexedPackageNames.add(packageName);
+				}
+			}
+			for (URL resource : resources) {
+				index.load(classLoader, resource, indexedPackageNames);
+			}
+		} catch (IOException e) {
+			throw new GiniException("Could not read " + IndexProcessor.INDEX_RESOURCE, e);
+		}
+		return index;
+	}
+
+	/**
+	 * Packages can also be prefixes of class names, such as
+	 * org.theglump.gini.bean.Step, whose locations are those of their parent
+	 * directory
+	 */
+	private static boolean isIndexed(ClassLoader classLoader, String packageName, Set<String> indexedRoots) throws IOException {
+		String path = packageName.replace('.', '/');
+		List<URL> locations = Collections.list(classLoader.getResources(path));
+		if (locations.isEmpty() && path.contains("/")) {
+			path = path.substring(0, path.lastIndexOf('/'));
+			locations = Collections.list(classLoader.getResources(path));
+		}
+		for (URL location : locations) {
+			if (!indexedRoots.contains(root(location, path))) {
+				return false;
+			}
+		}
+		return !locations.isEmpty();
+	}
+
+	/**
+	 * @return the URL of the classpath entry of the given resource
+	 */
+	private static String root(URL resource, String path) {
+		String url = resource.toString();
+		if (url.endsWith("/")) {
+			url = url.substring(0, url.length() - 1);
+		}
+		return url.endsWith(path) ? url.substring(0, url.length() - path.length()) : url;
+	}
+
+	private void load(ClassLoader classLoader, URL resource, List<String> packageNames) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(), Charsets.UTF_8));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) {
+					// indexes concatenated when jars are merged
+					continue;
+				}
+				List<String> columns = Splitter.on('\t').limit(4).splitToList(line);
+				String packageName = packageOf(columns.get(1), packageNames);
+				if (packageName != null) {
+					this.packageNames.add(packageName);
+					loadEntry(classLoader, columns);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private void loadEntry(ClassLoader classLoader, List<String> columns) {
+		String kind = columns.get(0);
+		Class<?> clazz = Reflections.forName(columns.get(1), classLoader);
+		if (IndexProcessor.MANAGED.equals(kind)) {
+			addManagedType(clazz);
+			if (columns.size() > 2) {
+				annotatedMethodNames.put(clazz, Sets.newHashSet(Splitter.on(',').omitEmptyStrings().split(columns.get(2))));
+			}
+		} else if (IndexProcessor.ADVICE.equals(kind)) {
+			adviceTypes.add(clazz);
+			addInheritedJoinpoints(clazz);
+		} else if (IndexProcessor.INJECT.equals(kind)) {
+			addInjectField(Reflections.getDeclaredField(clazz, columns.get(2)));
+		} else if (IndexProcessor.AROUND.equals(kind)) {
+			addJoinpoint(clazz, columns, Around.class);
+		} else if (IndexProcessor.AFTER_ASYNC.equals(kind)) {
+			addJoinpoint(clazz, columns, AfterAsync.class);
+		} else if (IndexProcessor.PROXY.equals(kind)) {
+			generatedProxies.put(clazz, Reflections.forName(columns.get(2), classLoader));
+		} else {
+			throw new GiniException("Unknown entry in " + IndexProcessor.INDEX_RESOURCE + " : " + kind);
+		}
+	}
+
+	private void addJoinpoint(Class<?> clazz, List<String> columns, Class<? extends Annotation> annotation) {
+		for (Method method : clazz.getDeclaredMethods()) {
+			if (method.getName().equals(columns.get(2)) && method.isAnnotationPresent(annotation)) {
+				joinpoints.put(method, columns.get(3));
+			}
+		}
+	}
+
+	/**
+	 * Advice methods inherited by an advice are only indexed along with
+	 * their declaring class, which may be outside of the indexed packages
+	 */
+	private void addInheritedJoinpoints(Class<?> clazz) {
+		for (Class<?> c = clazz.getSuperclass(); c != null && c != Object.class; c = c.getSuperclass()) {
+			for (Method method : c.getDeclaredMethods()) {
+				if (method.isAnnotationPresent(Around.class)) {
+					joinpoints.put(method, method.getAnnotation(Around.class).joinpoint());
+				} else if (method.isAnnotationPresent(AfterAsync.class)) {
+					joinpoints.put(method, method.getAnnotation(AfterAsync.class).joinpoint());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if the given class name is the given name, or belongs to
+	 *         the given package or to one of its sub packages
+	 */
+	static boolean isInPackage(String className, String packageName) {
+		return className.equals(packageName) || className.startsWith(packageName + ".") || className.startsWith(packageName + "$");
+	}
+
+	private static String packageOf(String className, Iterable<String> packageNames) {
+		for (String packageName : packageNames) {
+			if (className.startsWith(packageName)) {
+				return packageName;
+			}
+		}
+		return null;
+	}
+
+	void addPackageName(String packageName) {
+		packageNames.add(packageName);
+	}
+
+	void addManagedType(Class<?> clazz) {
+		annotatedMethods = null;
+		annotatedMethodNames.remove(clazz);
+		managedTypes.add(clazz);
+		publicMethods.put(clazz, Reflections.getPublicMethods(clazz));
+	}
+
+	void addAdviceType(Class<?> clazz) {
+		adviceTypes.add(clazz);
+	}
+
+	void addJoinpoint(Method adviceMethod, String joinpoint) {
+		joinpoints.put(adviceMethod, joinpoint);
+	}
+
+	void addGeneratedProxy(Class<?> clazz, Class<?> proxyClass) {
+		generatedProxies.put(clazz, proxyClass);
+	}
+
+	void addInjectField(Field field) {
+		Set<Field> fields = injectFields.get(field.getDeclaringClass());
+		if (fields == null) {
+			fields = Sets.newHashSet();
+			injectFields.put(field.getDeclaringClass(), fields);
+		}
+		fields.add(field);
+	}
+
+	void merge(ClassIndex other) {
+		annotatedMethods = null;
+		packageNames.addAll(other.packageNames);
+		managedTypes.addAll(other.managedTypes);
+		adviceTypes.addAll(other.adviceTypes);
+		publicMethods.putAll(other.publicMethods);
+		annotatedMethodNames.keySet().removeAll(other.managedTypes);
+		annotatedMethodNames.putAll(other.annotatedMethodNames);
+		joinpoints.putAll(other.joinpoints);
+		generatedProxies.putAll(other.generatedProxies);
+		for (Set<Field> fields : other.injectFields.values()) {
+			for (Field field : fields) {
+				addInjectField(field);
+			}
+		}
+	}
+
+	/**
+	 * @param packageName
+	 * @return a copy of this index without the entries of the given package
+	 */
+	ClassIndex without(String packageName) {
+		ClassIndex index = new ClassIndex();
+		for (String indexedPackage : this.packageNames) {
+			if (!indexedPackage.equals(packageName)) {
+				index.packageNames.add(indexedPackage);
+			}
+		}
+		for (Class<?> clazz : managedTypes) {
+			if (!isInPackage(clazz.getName(), packageName)) {
+				index.managedTypes.add(clazz);
+				index.publicMethods.put(clazz, publicMethods.get(clazz));
+				if (annotatedMethodNames.containsKey(clazz)) {
+					index.annotatedMethodNames.put(clazz, annotatedMethodNames.get(clazz));
+				}
+			}
+		}
+		for (Class<?> clazz : adviceTypes) {
+			if (!isInPackage(clazz.getName(), packageName)) {
+				index.adviceTypes.add(clazz);
+			}
+		}
+		for (Map.Entry<Method, String> joinpoint : joinpoints.entrySet()) {
+			if (!isInPackage(joinpoint.getKey().getDeclaringClass().getName(), packageName)) {
+				index.joinpoints.put(joinpoint.getKey(), joinpoint.getValue());
+			}
+		}
+		for (Map.Entry<Class<?>, Class<?>> proxy : generatedProxies.entrySet()) {
+			if (!isInPackage(proxy.getKey().getName(), packageName)) {
+				index.generatedProxies.put(proxy.getKey(), proxy.getValue());
+			}
+		}
+		for (Map.Entry<Class<?>, Set<Field>> fields : injectFields.entrySet()) {
+			if (!isInPackage(fields.getKey().getName(), packageName)) {
+				index.injectFields.put(fields.getKey(), Sets.newHashSet(fields.getValue()));
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Merges the advices of the given index only, so that they apply to the
+	 * managed types of this index
+	 *
+	 * @param other
+	 */
+	void mergeAdvices(ClassIndex other) {
+		adviceTypes.addAll(other.adviceTypes);
+		joinpoints.putAll(other.joinpoints);
+	}
+
+	/**
+	 * @return the packages covered by this index
+	 */
+	Set<String> getPackageNames() {
+		return Collections.unmodifiableSet(packageNames);
+	}
+
+	Set<Class<?>> getManagedTypes() {
+		return Collections.unmodifiableSet(managedTypes);
+	}
+
+	Set<Class<?>> getAdviceTypes() {
+		return Collections.unmodifiableSet(adviceTypes);
+	}
+
+	/**
+	 * Returns the methods of the given advice annotated with {@link Around} or
+	 * {@link AfterAsync}, including the ones it inherits
+	 *
+	 * @param adviceClass
+	 * @return advice methods
+	 */
+	Set<Method> getAdviceMethods(Class<?> adviceClass) {
+		Set<Method> methods = Sets.newHashSet();
+		for (Method method : joinpoints.keySet()) {
+			if (method.getDeclaringClass().isAssignableFrom(adviceClass)) {
+				methods.add(method);
+			}
+		}
+		return methods;
+	}
+
+	String getJoinpoint(Method aroundMethod) {
+		return joinpoints.get(aroundMethod);
+	}
+
+	/**
+	 * @param adviceMethod
+	 * @return the annotation of the methods intercepted by the given advice
+	 *         method, null if it only has a joinpoint
+	 */
+	Class<? extends Annotation> getAnnotatedWith(Method adviceMethod) {
+		Around around = adviceMethod.getAnnotation(Around.class);
+		Class<? extends Annotation> annotation = around != null ? around.annotatedWith() : adviceMethod.getAnnotation(AfterAsync.class).annotatedWith();
+		return annotation != Annotation.class ? annotation : null;
+	}
+
+	/**
+	 * Returns the public methods of the managed types carrying the given
+	 * annotation, or declared by a class carrying it. Annotations are indexed
+	 * on the first call only : those of the methods named by the build time
+	 * index, or of every public method of the types it does not cover.
+	 *
+	 * @param annotation
+	 * @return annotated methods
+	 */
+	Set<Method> getAnnotatedMethods(Class<? extends Annotation> annotation) {
+		if (annotatedMethods == null) {
+			indexAnnotations();
+		}
+		Set<Class<?>> types = annotatedTypes.get(annotation);
+		if (types.isEmpty()) {
+			return Collections.unmodifiableSet(annotatedMethods.get(annotation));
+		}
+		Set<Method> methods = Sets.newHashSet(annotatedMethods.get(annotation));
+		for (Class<?> clazz : types) {
+			methods.addAll(publicMethods.get(clazz));
+		}
+		return methods;
+	}
+
+	private void indexAnnotations() {
+		SetMultimap<Class<? extends Annotation>, Method> methods = HashMultimap.create();
+		SetMultimap<Class<? extends Annotation>, Class<?>> types = HashMultimap.create();
+		for (Map.Entry<Class<?>, Set<Method>> classMethods : publicMethods.entrySet()) {
+			Set<String> names = annotatedMethodNames.get(classMethods.getKey());
+			for (Method method : classMethods.getValue()) {
+				if (names != null && !names.contains(method.getName())) {
+					continue;
+				}
+				for (Annotation annotation : method.getAnnotations()) {
+					methods.put(annotation.annotationType(), method);
+				}
+			}
+			for (Annotation annotation : classMethods.getKey().getAnnotations()) {
+				types.put(annotation.annotationType(), classMethods.getKey());
+			}
+		}
+		annotatedTypes = types;
+		annotatedMethods = methods;
+	}
+
+	Set<Method> getManagedPublicMethods() {
+		Set<Method> methods = Sets.newHashSet();
+		for (Set<Method> classMethods : publicMethods.values()) {
+			methods.addAll(classMethods);
+		}
+		return methods;
+	}
+
+	/**
+	 * @param clazz
+	 * @return the proxy class generated at build time for the given managed
+	 *         class, null if there is none
+	 */
+	Class<?> getGeneratedProxy(Class<?> clazz) {
+		return generatedProxies.get(clazz);
+	}
+
+	/**
+	 * Returns the fields annotated with {@link Inject} of the given class and
+	 * its super classes. Classes outside of the indexed packages are inspected
+	 * by reflection.
+	 *
+	 * @param clazz
+	 * @return inject fields
+	 */
+	Set<Field> getInjectFields(Class<?> clazz) {
+		ImmutableSet.Builder<Field> fields = ImmutableSet.builder();
+		for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+			if (isIndexed(c)) {
+				Set<Field> indexedFields = injectFields.get(c);
+				if (indexedFields != null) {
+					fields.addAll(indexedFields);
+				}
+			} else {
+				for (Field field : c.getDeclaredFields()) {
+					if (field.isAnnotationPresent(Inject.class)) {
+						fields.add(field);
+					}
+				}
+			}
+		}
+		return fields.build();
+	}
+
+	/**
+	 * @return the fields annotated with {@link Inject} of the classes of the
+	 *         indexed packages
+	 */
+	Set<Field> getIndexedInjectFields() {
+		Set<Field> fields = Sets.newHashSet();
+		for (Set<Field> classFields : injectFields.values()) {
+			fields.addAll(classFields);
+		}
+		return fields;
+	}
+
+	private boolean isIndexed(Class<?> clazz) {
+		return packageOf(clazz.getName(), packageNames) != null;
+	}
+
+}
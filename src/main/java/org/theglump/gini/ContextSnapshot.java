@@ -0,0 +1,373 @@
+package org.theglump.gini;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.jar.JarEntry;
+import java.util.zip.CRC32;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.primitives.Longs;
+
+/**
+ * Wiring of a context saved to a file : its class index and the methods
+ * intercepted by each advice method. A context built from a snapshot neither
+ * scans the classpath nor matches joinpoints.
+ *
+ * The file starts with a magic number, the format version and the CRC32 of
+ * its content, then holds the packages of the context, the fingerprint of
+ * their class files, the index and the intercepted methods. It is memory
+ * mapped when read. The fingerprint is computed from the CRC32 of each class
+ * file of the packages, read from the central directory of jars so that
+ * entries are not inflated : a snapshot is ignored as soon as a class has been
+ * added, removed or modified.
+ *
+ * Only the class files of the packages are fingerprinted. Changing a super
+ * class, an interface or an annotation of another package, for instance an
+ * annotation used as a pointcut, does not invalidate the snapshot : it must
+ * then be deleted.
+ *
+ */
+class ContextSnapshot {
+
+	private static final int MAGIC = 0x47494e49;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int CHUNK_SIZE = 8192;
+	private static final Map<String, Class<?>> PRIMITIVE_TYPES;
+
+	static {
+		ImmutableMap.Builder<String, Class<?>> primitiveTypes = ImmutableMap.builder();
+		for (Class<?> type : new Class<?>[] { boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class,
+				void.class }) {
+			primitiveTypes.put(type.getName(), type);
+		}
+		PRIMITIVE_TYPES = primitiveTypes.build();
+	}
+
+	private final ClassIndex index;
+	private final SetMultimap<Method, Method> targetMethods;
+
+	private ContextSnapshot(ClassIndex index, SetMultimap<Method, Method> targetMethods) {
+		this.index = index;
+		this.targetMethods = targetMethods;
+	}
+
+	ClassIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the methods intercepted by each advice method, see
+	 *         {@link InterceptorHelper#computeTargetMethods()}
+	 */
+	SetMultimap<Method, Method> getTargetMethods() {
+		return targetMethods;
+	}
+
+	/**
+	 * Reads the snapshot of the given packages
+	 *
+	 * @param file
+	 * @param classLoader
+	 * @param packageNames
+	 * @return the snapshot, null if the file does not exist, is corrupted, was
+	 *         written for other packages or if a class of these packages has
+	 *         changed since
+	 */
+	static ContextSnapshot read(File file, ClassLoader classLoader, Set<String> packageNames) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			RandomAccessFile input = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = input.getChannel();
+				return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), classLoader, packageNames);
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			return null;
+		} catch (BufferUnderflowException e) {
+			return null;
+		} catch (GiniException e) {
+			// a class or a member of the snapshot does not exist anymore
+			return null;
+		}
+	}
+
+	private static ContextSnapshot read(ByteBuffer buffer, ClassLoader classLoader, Set<String> packageNames) throws IOException {
+		if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			return null;
+		}
+		long checksum = buffer.getLong();
+		if (checksum != checksum(buffer.slice())) {
+			return null;
+		}
+		if (!readStrings(buffer).equals(packageNames) || buffer.getLong() != fingerprint(classLoader, packageNames)) {
+			return null;
+		}
+		ClassIndex index = new ClassIndex();
+		for (String packageName : readStrings(buffer)) {
+			index.addPackageName(packageName);
+		}
+		for (int i = buffer.getInt(); i > 0; i--) {
+			Class<?> clazz = readClass(buffer, classLoader);
+			index.addManagedType(clazz);
+			String proxyClassName = readString(buffer);
+			if (!proxyClassName.isEmpty()) {
+				index.addGeneratedProxy(clazz, Reflections.forName(proxyClassName, classLoader));
+			}
+		}
+		for (int i = buffer.getInt(); i > 0; i--) {
+			index.addAdviceType(readClass(buffer, classLoader));
+		}
+		for (int i = buffer.getInt(); i > 0; i--) {
+			index.addJoinpoint(readMethod(buffer, classLoader), readString(buffer));
+		}
+		for (int i = buffer.getInt(); i > 0; i--) {
+			index.addInjectField(Reflections.getDeclaredField(readClass(buffer, classLoader), readString(buffer)));
+		}
+		SetMultimap<Method, Method> targetMethods = HashMultimap.create();
+		for (int i = buffer.getInt(); i > 0; i--) {
+			Method adviceMethod = readMethod(buffer, classLoader);
+			for (int j = buffer.getInt(); j > 0; j--) {
+				targetMethods.put(adviceMethod, readMethod(buffer, classLoader));
+			}
+		}
+		return new ContextSnapshot(index, targetMethods);
+	}
+
+	/**
+	 * Writes the snapshot of the given packages. The file is written next to
+	 * the target file first, then moved, so that a context never reads a
+	 * partially written snapshot.
+	 *
+	 * @param file
+	 * @param classLoader
+	 * @param packageNames
+	 * @param index
+	 * @param targetMethods
+	 * @throws GiniException
+	 *             if the file could not be written
+	 */
+	static void write(File file, ClassLoader classLoader, Set<String> packageNames, ClassIndex index, SetMultimap<Method, Method> targetMethods) {
+		try {
+			ByteArrayDataOutput content = ByteStreams.newDataOutput();
+			writeStrings(content, packageNames);
+			content.writeLong(fingerprint(classLoader, packageNames));
+			writeStrings(content, index.getPackageNames());
+			content.writeInt(index.getManagedTypes().size());
+			for (Class<?> clazz : index.getManagedTypes()) {
+				writeString(content, clazz.getName());
+				Class<?> proxyClass = index.getGeneratedProxy(clazz);
+				writeString(content, proxyClass != null ? proxyClass.getName() : "");
+			}
+			content.writeInt(index.getAdviceTypes().size());
+			Map<Method, String> joinpoints = Maps.newHashMap();
+			for (Class<?> clazz : index.getAdviceTypes()) {
+				writeString(content, clazz.getName());
+				for (Method adviceMethod : index.getAdviceMethods(clazz)) {
+					joinpoints.put(adviceMethod, index.getJoinpoint(adviceMethod));
+				}
+			}
+			content.writeInt(joinpoints.size());
+			for (Map.Entry<Method, String> joinpoint : joinpoints.entrySet()) {
+				writeMethod(content, joinpoint.getKey());
+				writeString(content, joinpoint.getValue());
+			}
+			Set<Field> injectFields = index.getIndexedInjectFields();
+			content.writeInt(injectFields.size());
+			for (Field field : injectFields) {
+				writeString(content, field.getDeclaringClass().getName());
+				writeString(content, field.getName());
+			}
+			content.writeInt(targetMethods.keySet().size());
+			for (Method adviceMethod : targetMethods.keySet()) {
+				writeMethod(content, adviceMethod);
+				content.writeInt(targetMethods.get(adviceMethod).size());
+				for (Method method : targetMethods.get(adviceMethod)) {
+					writeMethod(content, method);
+				}
+			}
+			byte[] bytes = content.toByteArray();
+			ByteArrayDataOutput output = ByteStreams.newDataOutput(HEADER_SIZE + bytes.length);
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(checksum(ByteBuffer.wrap(bytes)));
+			output.write(bytes);
+
+			Files.createParentDirs(file);
+			File temporary = new File(file.getPath() + ".tmp");
+			Files.write(output.toByteArray(), temporary);
+			Files.move(temporary, file);
+		} catch (IOException e) {
+			throw new GiniException("Cannot write snapshot " + file, e);
+		}
+	}
+
+	/**
+	 * Computes the fingerprint of the class files of the given packages, as
+	 * found by the given class loader. Only directories and jars are
+	 * supported.
+	 *
+	 * @param classLoader
+	 * @param packageNames
+	 * @return fingerprint
+	 * @throws IOException
+	 *             if the class files could not be read
+	 */
+	static long fingerprint(ClassLoader classLoader, Set<String> packageNames) throws IOException {
+		SortedMap<String, Long> checksums = Maps.newTreeMap();
+		for (String packageName : packageNames) {
+			String path = packageName.replace('.', '/');
+			String directory = path;
+			List<URL> roots = Collections.list(classLoader.getResources(directory));
+			if (roots.isEmpty() && path.contains("/")) {
+				// packages are prefixes of class names, such as
+				// org.theglump.gini.bean.Step
+				directory = path.substring(0, path.lastIndexOf('/'));
+				roots = Collections.list(classLoader.getResources(directory));
+			}
+			for (URL root : roots) {
+				addChecksums(root, directory, path, checksums);
+			}
+		}
+		CRC32 fingerprint = new CRC32();
+		for (Map.Entry<String, Long> checksum : checksums.entrySet()) {
+			fingerprint.update(checksum.getKey().getBytes(Charsets.UTF_8));
+			fingerprint.update(Longs.toByteArray(checksum.getValue()));
+		}
+		return fingerprint.getValue();
+	}
+
+	/**
+	 * Adds the checksums of the class files of the given root whose name
+	 * starts with the given path. A class found in several roots keeps the
+	 * checksum of the first one, which is the one loaded.
+	 */
+	private static void addChecksums(URL root, String directory, String path, Map<String, Long> checksums) throws IOException {
+		if ("file".equals(root.getProtocol())) {
+			File rootFile;
+			try {
+				rootFile = new File(root.toURI());
+			} catch (URISyntaxException e) {
+				throw new IOException(e);
+			}
+			for (File file : Files.fileTreeTraverser().preOrderTraversal(rootFile)) {
+				String name = directory + "/" + rootFile.toURI().relativize(file.toURI()).getPath();
+				if (file.isFile() && isClassFile(name, path) && !checksums.containsKey(name)) {
+					CRC32 crc = new CRC32();
+					crc.update(Files.toByteArray(file));
+					checksums.put(name, crc.getValue());
+				}
+			}
+		} else if ("jar".equals(root.getProtocol())) {
+			JarURLConnection connection = (JarURLConnection) root.openConnection();
+			Enumeration<JarEntry> entries = connection.getJarFile().entries();
+			while (entries.hasMoreElements()) {
+				JarEntry entry = entries.nextElement();
+				if (isClassFile(entry.getName(), path) && !checksums.containsKey(entry.getName())) {
+					checksums.put(entry.getName(), entry.getCrc());
+				}
+			}
+		} else {
+			throw new IOException("Unsupported class path location " + root);
+		}
+	}
+
+	private static boolean isClassFile(String name, String path) {
+		return name.startsWith(path) && name.endsWith(".class");
+	}
+
+	/**
+	 * Computes the CRC32 of the remaining bytes of the given buffer, by chunks
+	 * for mapped buffers
+	 */
+	private static long checksum(ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		byte[] chunk = new byte[CHUNK_SIZE];
+		while (buffer.hasRemaining()) {
+			int length = Math.min(chunk.length, buffer.remaining());
+			buffer.get(chunk, 0, length);
+			crc.update(chunk, 0, length);
+		}
+		return crc.getValue();
+	}
+
+	private static void writeString(ByteArrayDataOutput output, String value) {
+		byte[] bytes = value.getBytes(Charsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, Charsets.UTF_8);
+	}
+
+	private static void writeStrings(ByteArrayDataOutput output, Set<String> values) {
+		output.writeInt(values.size());
+		for (String value : values) {
+			writeString(output, value);
+		}
+	}
+
+	private static Set<String> readStrings(ByteBuffer buffer) {
+		Set<String> values = Sets.newLinkedHashSet();
+		for (int i = buffer.getInt(); i > 0; i--) {
+			values.add(readString(buffer));
+		}
+		return values;
+	}
+
+	private static Class<?> readClass(ByteBuffer buffer, ClassLoader classLoader) {
+		String className = readString(buffer);
+		Class<?> primitiveType = PRIMITIVE_TYPES.get(className);
+		return primitiveType != null ? primitiveType : Reflections.forName(className, classLoader);
+	}
+
+	private static void writeMethod(ByteArrayDataOutput output, Method method) {
+		writeString(output, method.getDeclaringClass().getName());
+		writeString(output, method.getName());
+		output.writeInt(method.getParameterTypes().length);
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			writeString(output, parameterType.getName());
+		}
+	}
+
+	private static Method readMethod(ByteBuffer buffer, ClassLoader classLoader) {
+		Class<?> clazz = readClass(buffer, classLoader);
+		String name = readString(buffer);
+		Class<?>[] parameterTypes = new Class<?>[buffer.getInt()];
+		for (int i = 0; i < parameterTypes.length; i++) {
+			parameterTypes[i] = readClass(buffer, classLoader);
+		}
+		return Reflections.getDeclaredMethod(clazz, name, parameterTypes);
+	}
+
+}
@@ -0,0 +1,206 @@
+package org.theglump.gini;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Dependencies between managed classes through their constructors, see
+ * {@link BeanConstructor}, and their fields annotated with
+ * {@link org.theglump.gini.annotation.Inject}. Constructor parameters are
+ * resolved by type among the managed classes, fields by type and then by
+ * name as {@link BeanStore} does. Constructor cycles are rejected since such
+ * beans could not be created. Dependencies can also be resolved outside of
+ * the graph, by the parent of a child context for instance.
+ * 
+ * Every dependency is resolved before the graph is rejected, so that all the
+ * missing beans, ambiguities and cycles are reported at once.
+ * 
+ * Beans are created level by level : a bean only depends on beans of lower
+ * levels, so that beans of a same level can be created concurrently.
+ * 
+ */
+class DependencyGraph {
+
+	private static final Function<Class<?>, Set<Field>> NO_FIELDS = new Function<Class<?>, Set<Field>>() {
+
+		@Override
+		public Set<Field> apply(Class<?> clazz) {
+			return Collections.emptySet();
+		}
+
+	};
+
+	private final Map<Class<?>, List<Class<?>>> dependencies = Maps.newHashMap();
+	private final Map<Class<?>, Integer> levels = Maps.newHashMap();
+	private final List<String> errors = Lists.newArrayList();
+
+	/**
+	 * @param managedTypes
+	 * @param parameterTypes
+	 *            constructor parameter types of a managed class
+	 * @throws GiniException
+	 *             if a parameter cannot be resolved or if dependencies are
+	 *             cyclic
+	 */
+	DependencyGraph(Set<Class<?>> managedTypes, Function<Class<?>, Class<?>[]> parameterTypes) {
+		this(managedTypes, parameterTypes, NO_FIELDS, Predicates.<Class<?>> alwaysFalse());
+	}
+
+	/**
+	 * @param managedTypes
+	 * @param parameterTypes
+	 *            constructor parameter types of a managed class
+	 * @param injectFields
+	 *            fields of a managed class annotated with
+	 *            {@link org.theglump.gini.annotation.Inject}
+	 * @param provided
+	 *            types resolved outside of the graph when no managed class
+	 *            matches them
+	 * @throws GiniException
+	 *             listing every dependency which cannot be resolved and every
+	 *             cycle
+	 */
+	DependencyGraph(Set<Class<?>> managedTypes, Function<Class<?>, Class<?>[]> parameterTypes, Function<Class<?>, Set<Field>> injectFields,
+			Predicate<Class<?>> provided) {
+		for (Class<?> clazz : managedTypes) {
+			List<Class<?>> classDependencies = Lists.newArrayList();
+			for (Class<?> parameterType : parameterTypes.apply(clazz)) {
+				Class<?> dependency = resolve(clazz, parameterType, managedTypes, provided);
+				if (dependency != null) {
+					classDependencies.add(dependency);
+				}
+			}
+			dependencies.put(clazz, classDependencies);
+			for (Field field : injectFields.apply(clazz)) {
+				resolve(clazz, field, managedTypes, provided);
+			}
+		}
+		for (Class<?> clazz : managedTypes) {
+			computeLevel(clazz, Lists.<Class<?>> newArrayList());
+		}
+		if (errors.size() == 1) {
+			throw new GiniException(errors.get(0));
+		} else if (!errors.isEmpty()) {
+			throw new GiniException(errors.size() + " injection errors :\n" + Joiner.on('\n').join(errors));
+		}
+	}
+
+	/**
+	 * @return the managed class matching the parameter, null if it is
+	 *         provided outside of the graph or cannot be resolved
+	 */
+	private Class<?> resolve(Class<?> clazz, Class<?> parameterType, Set<Class<?>> managedTypes, Predicate<Class<?>> provided) {
+		List<Class<?>> candidates = getCandidates(parameterType, managedTypes);
+		if (candidates.size() > 1) {
+			errors.add("Several instance for " + parameterType.getName() + " in constructor of " + clazz.getName()
+					+ " - constructor parameters are injected by type only");
+		} else if (candidates.isEmpty() && !provided.apply(parameterType)) {
+			errors.add("Could not find an instance for " + parameterType.getName() + " in constructor of " + clazz.getName());
+		}
+		return candidates.size() == 1 ? candidates.get(0) : null;
+	}
+
+	/**
+	 * Resolves an injected field, candidates being matched by name when
+	 * several match by type
+	 */
+	private void resolve(Class<?> clazz, Field field, Set<Class<?>> managedTypes, Predicate<Class<?>> provided) {
+		List<Class<?>> candidates = getCandidates(field.getType(), managedTypes);
+		if (candidates.isEmpty() && !provided.apply(field.getType())) {
+			errors.add("Could not find an instance for " + field.getType().getName() + " in field " + field.getName() + " of " + clazz.getName());
+		} else if (candidates.size() > 1) {
+			for (Class<?> candidate : candidates) {
+				if (Reflections.className(candidate).equalsIgnoreCase(field.getName())) {
+					return;
+				}
+			}
+			errors.add("Several instance for " + field.getType().getName() + " in field " + field.getName() + " of " + clazz.getName()
+					+ " - could not find the matching one");
+		}
+	}
+
+	private static List<Class<?>> getCandidates(Class<?> type, Set<Class<?>> managedTypes) {
+		List<Class<?>> candidates = Lists.newArrayList();
+		for (Class<?> candidate : managedTypes) {
+			if (type.isAssignableFrom(candidate)) {
+				candidates.add(candidate);
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Depth first computation of levels, path being the classes whose level
+	 * is being computed. Each cycle is reported once, levels of its members
+	 * being computed when the path is unwound.
+	 */
+	private int computeLevel(Class<?> clazz, List<Class<?>> path) {
+		Integer level = levels.get(clazz);
+		if (level != null) {
+			return level;
+		}
+		int index = path.indexOf(clazz);
+		if (index >= 0) {
+			List<String> cycle = Lists.newArrayList();
+			for (Class<?> member : path.subList(index, path.size())) {
+				cycle.add(member.getName());
+			}
+			cycle.add(clazz.getName());
+			errors.add("Cyclic constructor dependencies : " + Joiner.on(" -> ").join(cycle));
+			// the graph is rejected, the level does not matter
+			return 0;
+		}
+		path.add(clazz);
+		int computed = 0;
+		for (Class<?> dependency : dependencies.get(clazz)) {
+			computed = Math.max(computed, computeLevel(dependency, path) + 1);
+		}
+		path.remove(path.size() - 1);
+		levels.put(clazz, computed);
+		return computed;
+	}
+
+	/**
+	 * @param clazz
+	 * @return the managed classes the constructor of the given class depends
+	 *         on
+	 */
+	List<Class<?>> getDependencies(Class<?> clazz) {
+		return dependencies.get(clazz);
+	}
+
+	/**
+	 * Groups the given classes by level, keeping their order within a level
+	 * 
+	 * @param classes
+	 * @return classes of each level, lowest level first
+	 */
+	List<List<Class<?>>> creationLevels(List<Class<?>> classes) {
+		List<List<Class<?>>> creationLevels = Lists.newArrayList();
+		for (Class<?> clazz : classes) {
+			int level = levels.get(clazz);
+			while (creationLevels.size() <= level) {
+				creationLevels.add(Lists.<Class<?>> newArrayList());
+			}
+			creationLevels.get(level).add(clazz);
+		}
+		List<List<Class<?>>> nonEmptyLevels = Lists.newArrayList();
+		for (List<Class<?>> level : creationLevels) {
+			if (!level.isEmpty()) {
+				nonEmptyLevels.add(level);
+			}
+		}
+		return nonEmptyLevels;
+	}
+
+}
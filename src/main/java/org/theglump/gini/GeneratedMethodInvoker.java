@@ -0,0 +1,27 @@
+package org.theglump.gini;
+
+/**
+ * Calls the method of the managed class overridden by a
+ * {@link GeneratedProxy}, as {@link MethodInvokerImpl} does for cglib proxies
+ *
+ */
+class GeneratedMethodInvoker implements MethodInvoker {
+
+	private final GeneratedProxy proxy;
+	private final int method;
+
+	GeneratedMethodInvoker(GeneratedProxy proxy, int method) {
+		this.proxy = proxy;
+		this.method = method;
+	}
+
+	@Override
+	public Object invokeMethod(Object[] args) {
+		try {
+			return proxy.gini$invokeSuper(method, args);
+		} catch (Throwable e) {
+			throw new GiniException("could not call method on proxy " + proxy, e);
+		}
+	}
+
+}
@@ -0,0 +1,104 @@
+package org.theglump.gini;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+
+import net.sf.cglib.core.ReflectUtils;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * Instantiates the {@link GeneratedProxy} classes written at build time.
+ *
+ * A generated proxy only overrides the methods matched by the joinpoints known
+ * when the managed class was compiled : it is used for a bean only if it
+ * overrides every method intercepted in the context, a cglib proxy is
+ * generated otherwise.
+ *
+ */
+class GeneratedProxies {
+
+	private static final LoadingCache<Class<?>, Overrides> OVERRIDES = CacheBuilder.newBuilder().weakKeys()
+			.build(new CacheLoader<Class<?>, Overrides>() {
+
+				@Override
+				public Overrides load(Class<?> proxyClass) throws Exception {
+					return new Overrides(proxyClass);
+				}
+
+			});
+
+	private GeneratedProxies() {
+	}
+
+	/**
+	 * @param proxyClass
+	 * @param interceptedMethods
+	 * @return true if the given proxy class overrides all the intercepted
+	 *         methods
+	 */
+	static boolean overridesAll(Class<?> proxyClass, Set<Method> interceptedMethods) {
+		Set<List<Object>> signatures = OVERRIDES.getUnchecked(proxyClass).signatures;
+		for (Method method : interceptedMethods) {
+			if (!signatures.contains(signature(method))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Instantiates the given proxy class and binds it to the given
+	 * interceptor and to its chains of typed advices
+	 *
+	 * @param proxyClass
+	 * @param methodInterceptor
+	 * @param parameterTypes
+	 *            of the constructor of the proxified class to call
+	 * @param args
+	 * @return proxy
+	 */
+	static Object newInstance(Class<?> proxyClass, MethodInterceptor methodInterceptor, Class<?>[] parameterTypes, Object[] args) {
+		Overrides overrides = OVERRIDES.getUnchecked(proxyClass);
+		methodInterceptor.index(overrides.methods);
+		GeneratedProxy proxy = (GeneratedProxy) ReflectUtils.newInstance(proxyClass, parameterTypes, args);
+		proxy.gini$setInterceptor(methodInterceptor);
+		methodInterceptor.bind(proxy, overrides.entryMethods, overrides.superMethods);
+		return proxy;
+	}
+
+	private static List<Object> signature(Method method) {
+		return Lists.<Object> asList(method.getName(), method.getParameterTypes());
+	}
+
+	private static class Overrides {
+
+		private final Method[] methods;
+		private final Method[] entryMethods;
+		private final Method[] superMethods;
+		private final Set<List<Object>> signatures;
+
+		Overrides(Class<?> proxyClass) throws Exception {
+			this.methods = (Method[]) proxyClass.getField(GeneratedProxy.METHODS_FIELD).get(null);
+			this.entryMethods = new Method[methods.length];
+			this.superMethods = new Method[methods.length];
+			ImmutableSet.Builder<List<Object>> signatures = ImmutableSet.builder();
+			for (int i = 0; i < methods.length; i++) {
+				Class<?>[] parameterTypes = methods[i].getParameterTypes();
+				Class<?> entryInterface = Class.forName(proxyClass.getName() + '$' + GeneratedProxy.TYPED_INTERFACE_PREFIX + i, false,
+						proxyClass.getClassLoader());
+				entryMethods[i] = entryInterface.getMethod("invoke", parameterTypes);
+				superMethods[i] = proxyClass.getMethod(GeneratedProxy.SUPER_METHOD_PREFIX + i, parameterTypes);
+				signatures.add(signature(methods[i]));
+			}
+			this.signatures = signatures.build();
+		}
+
+	}
+
+}
@@ -0,0 +1,70 @@
+package org.theglump.gini;
+
+/**
+ * Implemented by the proxy classes generated at build time by
+ * {@link org.theglump.gini.processor.IndexProcessor}. A generated proxy
+ * overrides the public methods of the managed class matched by a joinpoint,
+ * each of them being identified by its index in the static
+ * {@value #METHODS_FIELD} array of the proxy class.
+ *
+ * This interface is not meant to be implemented by hand, its methods are
+ * prefixed so that they do not clash with the methods of managed classes.
+ *
+ */
+public interface GeneratedProxy {
+
+	/**
+	 * Name of the static field holding the methods overridden by a generated
+	 * proxy, ordered by index
+	 */
+	String METHODS_FIELD = "gini$methods";
+
+	/**
+	 * Prefix of the public interfaces nested in a generated proxy, suffixed
+	 * by the index of a method, declaring the typed entry point of the method
+	 * as a single <code>invoke</code> method
+	 */
+	String TYPED_INTERFACE_PREFIX = "Typed";
+
+	/**
+	 * Prefix of the public methods of a generated proxy, suffixed by the
+	 * index of a method, calling the method of the managed class with the
+	 * parameter types of the method. Exceptions are wrapped in a
+	 * {@link GiniException}, as {@link MethodInvoker}s do.
+	 */
+	String SUPER_METHOD_PREFIX = "gini$super";
+
+	/**
+	 * Binds the proxy to the interceptor of its bean. Methods called before
+	 * the proxy is bound, by the constructor of the managed class for
+	 * instance, are not intercepted.
+	 *
+	 * @param interceptor
+	 */
+	void gini$setInterceptor(ProxyInterceptor interceptor);
+
+	/**
+	 * Binds a method to a chain of typed advices, called instead of the
+	 * interceptor of the proxy
+	 *
+	 * @param method
+	 *            index of the method
+	 * @param chain
+	 *            implementation of the {@value #TYPED_INTERFACE_PREFIX}
+	 *            interface of the method
+	 */
+	void gini$setTypedChain(int method, Object chain);
+
+	/**
+	 * Calls the method of the managed class overridden by the proxy
+	 *
+	 * @param method
+	 *            index of the method
+	 * @param args
+	 * @return method call result
+	 * @throws Throwable
+	 *             thrown by the method
+	 */
+	Object gini$invokeSuper(int method, Object[] args) throws Throwable;
+
+}
@@ -1,46 +1,130 @@
 package org.theglump.gini;
 
-import static org.reflections.ReflectionUtils.getAllFields;
-import static org.reflections.ReflectionUtils.withAnnotation;
 import static org.theglump.gini.Reflections.getProxifiedClass;
-import static org.theglump.gini.Reflections.injectField;
-import static org.theglump.gini.Reflections.instantiate;
 
+import java.io.Closeable;
+import java.io.File;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.sf.cglib.proxy.Callback;
 
-import org.reflections.Reflections;
 import org.theglump.gini.annotation.Advice;
+import org.theglump.gini.annotation.AfterAsync;
 import org.theglump.gini.annotation.Around;
+import org.theglump.gini.annotation.Cached;
 import org.theglump.gini.annotation.Inject;
 import org.theglump.gini.annotation.Managed;
+import org.theglump.gini.annotation.Scope;
 
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
 import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 
 /**
- * Gini is a simple DI Container and AOP engine : beans are singletons and
- * injection is done by type then by name.
+ * Gini is a simple DI Container and AOP engine : beans are singletons unless
+ * another {@link Scope} is given, and injection is done by type then by name.
  * 
  * Managed classes must be annotated with {@link Managed} and candidate fields
- * for injection must be annotated with {@link Inject}.
+ * for injection must be annotated with {@link Inject}. Beans are created
+ * with their no-arg constructor, or with the constructor annotated with
+ * {@link Inject}, dependencies being created first.
  * 
  * AOP is done by defining advices annotated with @link {@link Advice}.
  * 
  * An Advice contains methods annotated with {@link Around}, they are called
- * during interception of target methods.
+ * during interception of target methods, or with {@link AfterAsync}, called
+ * asynchronously once target methods returned.
  * 
  * @author sebastien.rozange
  * 
  */
-public class Gini {
+public class Gini implements Closeable {
+
+	private static final Function<Class<?>, String> CLASS_NAME = new Function<Class<?>, String>() {
+
+		@Override
+		public String apply(Class<?> clazz) {
+			return clazz.getName();
+		}
+
+	};
+
+	private static final Function<Object, Class<?>> BEAN_CLASS = new Function<Object, Class<?>>() {
+
+		@Override
+		public Class<?> apply(Object bean) {
+			return getProxifiedClass(bean.getClass());
+		}
+
+	};
+
+	/**
+	 * Default maximum number of pending async advices
+	 */
+	public static final int DEFAULT_ASYNC_CAPACITY = 1024;
+
+	private static final Ordering<Class<?>> CLASS_NAME_ORDERING = Ordering.natural().onResultOf(CLASS_NAME);
 
+	private final Gini parent;
 	private final BeanStore store;
-	private final Reflections reflections;
-	private final InterceptorHelper interceptorHelper;
+	private volatile ClassIndex index;
+	private final LoadingCache<Class<?>, Injector> injectors;
+	private final ConcurrentMap<Class<?>, BeanConstructor> constructors = Maps.newConcurrentMap();
+	private volatile ConcurrentMap<Method, CachingAdvice> caches = Maps.newConcurrentMap();
+	private volatile ConcurrentMap<Class<?>, Object> advices = Maps.newConcurrentMap();
+	private final boolean useIndex;
+	private final ExecutorService scanExecutor;
+	private final ExecutorService bootstrapExecutor;
+	private final boolean lazy;
+	private final boolean generatedProxies;
+	private final InterceptionMetrics metrics;
+	private final BootstrapProfiler profiler;
+	private final GiniException snapshotFailure;
+	private final AsyncAdviceExecutor asyncAdvices;
+	private final BeanProvider.Initializer beanInitializer = new BeanProvider.Initializer() {
+
+		@Override
+		public Object create(Class<?> clazz) {
+			return createBean(clazz, store, index);
+		}
+
+		@Override
+		public void inject(Object bean) {
+			Gini.this.inject(bean);
+		}
+
+		@Override
+		public Object createClassProxy(Class<?> clazz, Callback callback) {
+			BeanConstructor constructor = getConstructor(clazz);
+			return org.theglump.gini.Reflections.createDelegatingProxy(clazz, callback, constructor.getParameterTypes(),
+					constructor.resolveArguments(store));
+		}
+
+	};
 
 	/**
 	 * Initialize a new context by scanning all classes and sub-classes of the
@@ -59,15 +143,73 @@ public class Gini {
 	 * @param packageName
 	 */
 	public Gini(String packageName) {
-		Preconditions.checkNotNull(packageName);
+		this(builder().packages(Preconditions.checkNotNull(packageName)));
+	}
+
+	/**
+	 * Returns a builder allowing to tune how the context is initialized
+	 *
+	 * @return a new builder
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	private Gini(Builder builder) {
+		Preconditions.checkArgument(!builder.packageNames.isEmpty(), "At least one package must be given");
 
-		this.store = new BeanStore();
-		this.reflections = new Reflections(packageName);
-		this.interceptorHelper = new InterceptorHelper(packageName);
+		this.profiler = new BootstrapProfiler(builder.profile);
+		BootstrapProfiler.Sample bootstrap = profiler.start();
+		this.parent = builder.parent;
+		this.store = new BeanStore(parent != null ? parent.store : null);
+		this.useIndex = builder.useIndex;
+		this.scanExecutor = builder.scanExecutor;
+		ContextSnapshot snapshot = builder.snapshot != null ? ContextSnapshot.read(builder.snapshot, classLoader(), builder.packageNames) : null;
+		this.index = snapshot != null ? snapshot.getIndex() : createIndex(builder.packageNames);
+		BootstrapProfiler.Sample phase = profiler.phase("index", bootstrap);
+		this.bootstrapExecutor = builder.bootstrapExecutor != null ? builder.bootstrapExecutor : MoreExecutors.newDirectExecutorService();
+		this.lazy = builder.lazy;
+		this.generatedProxies = builder.generatedProxies;
+		this.metrics = builder.metrics ? new InterceptionMetrics() : null;
+		this.asyncAdvices = new AsyncAdviceExecutor(builder.asyncExecutor, builder.asyncCapacity);
+		this.injectors = CacheBuilder.newBuilder().build(new CacheLoader<Class<?>, Injector>() {
+
+			@Override
+			public Injector load(Class<?> clazz) {
+				return new Injector(index.getInjectFields(getProxifiedClass(clazz)));
+			}
 
-		registerInterceptors();
-		registerBeans();
-		inject();
+		});
+
+		SetMultimap<Method, Method> targetMethods = snapshot != null ? snapshot.getTargetMethods() : computeTargetMethods();
+		this.snapshotFailure = builder.snapshot != null && snapshot == null ? writeSnapshot(builder.snapshot, builder.packageNames, targetMethods)
+				: null;
+		store.registerInterceptors(new InterceptorHelper(index, caches, advices).createInterceptors(targetMethods));
+		phase = profiler.phase("interceptors", phase);
+		registerBeans(index.getManagedTypes(), store, index);
+		phase = profiler.phase("create beans", phase);
+		store.freeze();
+		phase = profiler.phase("freeze", phase);
+		inject(store.getBeans(), store);
+		profiler.phase("inject beans", phase);
+		profiler.finish(bootstrap);
+	}
+
+	/**
+	 * Writes the snapshot of this context, a failure not failing the context
+	 * as the snapshot only speeds up the next starts, which try to write it
+	 * again
+	 *
+	 * @return the failure, null if the snapshot was written
+	 */
+	private GiniException writeSnapshot(File file, Set<String> packageNames, SetMultimap<Method, Method> targetMethods) {
+		try {
+			ContextSnapshot.write(file, classLoader(), packageNames, index, targetMethods);
+			return null;
+		} catch (GiniException e) {
+			profiler.snapshotFailure(e);
+			return e;
+		}
 	}
 
 	/**
@@ -86,6 +228,145 @@ public class Gini {
 		return store.getBean(clazz, null);
 	}
 
+	/**
+	 * Returns the statistics of the calls of each advised method created so
+	 * far, when the context has been built with
+	 * {@link Builder#metrics(boolean)}
+	 *
+	 * @return statistics per advised method, empty when metrics are disabled
+	 */
+	public Map<Method, InterceptionStats> getInterceptionStats() {
+		return metrics != null ? metrics.snapshot() : ImmutableMap.<Method, InterceptionStats> of();
+	}
+
+	/**
+	 * Returns the statistics of the cache of each method annotated with
+	 * {@link Cached}
+	 *
+	 * @return statistics per cached method
+	 */
+	public Map<Method, CacheStats> getCacheStats() {
+		ImmutableMap.Builder<Method, CacheStats> stats = ImmutableMap.builder();
+		for (Map.Entry<Method, CachingAdvice> cache : caches.entrySet()) {
+			stats.put(cache.getKey(), cache.getValue().stats());
+		}
+		return stats.build();
+	}
+
+	/**
+	 * Returns where the bootstrap of this context spent its time, when the
+	 * context has been built with {@link Builder#profile(boolean)}
+	 *
+	 * @return the report, null when the bootstrap was not profiled
+	 */
+	@Nullable
+	public BootstrapReport getBootstrapReport() {
+		return profiler.getReport();
+	}
+
+	/**
+	 * Returns why the snapshot given to {@link Builder#snapshot(File)} could
+	 * not be written at bootstrap
+	 *
+	 * @return the failure, null when the snapshot was read or written, or
+	 *         when the context has no snapshot
+	 */
+	@Nullable
+	public GiniException getSnapshotFailure() {
+		return snapshotFailure;
+	}
+
+	/**
+	 * @return the parent of this context, null if it is not a child context
+	 */
+	@Nullable
+	public Gini getParent() {
+		return parent;
+	}
+
+	/**
+	 * @return the number of {@link AfterAsync} advices which were not called
+	 *         because their queue was full
+	 */
+	public long getDroppedAsyncAdvices() {
+		return asyncAdvices.getDropped();
+	}
+
+	/**
+	 * @return the number of {@link AfterAsync} advices which threw an
+	 *         exception
+	 */
+	public long getFailedAsyncAdvices() {
+		return asyncAdvices.getFailed();
+	}
+
+	/**
+	 * Unregisters the MBeans of this context and stops the default executor
+	 * of async advices once pending advices are done. Beans remain usable,
+	 * except for async advices.
+	 */
+	@Override
+	public void close() {
+		if (metrics != null) {
+			metrics.unregister();
+		}
+		asyncAdvices.shutdown();
+	}
+
+	/**
+	 * Returns the statistics of the cache of proxy classes shared by all
+	 * contexts, each miss being the generation of a proxy class. The maximum
+	 * size of the cache is set by the
+	 * <code>gini.proxyClassCache.maximumSize</code> system property.
+	 *
+	 * @return proxy class cache statistics
+	 */
+	public static CacheStats getProxyClassCacheStats() {
+		return ProxyClassCache.stats();
+	}
+
+	/**
+	 * @return the number of proxy classes currently cached
+	 */
+	public static long getProxyClassCacheSize() {
+		return ProxyClassCache.size();
+	}
+
+	/**
+	 * Borrows a bean of {@link Scope#POOLED} scope from its pool, for calls
+	 * spanning several methods. The bean must be given back with
+	 * {@link #release(Object)}.
+	 *
+	 * @param clazz
+	 *            class or interface of the pooled bean
+	 * @return an idle bean, or a new one if the pool is empty
+	 */
+	@Nonnull
+	public <T> T borrow(Class<T> clazz) {
+		Preconditions.checkNotNull(clazz);
+		return clazz.cast(getPooledBean(clazz).borrow());
+	}
+
+	/**
+	 * Gives back a bean returned by {@link #borrow(Class)} to its pool, the
+	 * bean is dropped when the pool is full. Beans not borrowed from the pool,
+	 * like the proxy returned by {@link #getBean(Class)}, are rejected.
+	 *
+	 * @param bean
+	 */
+	public void release(Object bean) {
+		Preconditions.checkNotNull(bean);
+		getPooledBean(getProxifiedClass(bean.getClass())).release(bean);
+	}
+
+	private PooledBean getPooledBean(Class<?> clazz) {
+		BeanProvider provider = store.getBeanProvider(clazz);
+		if (!(provider instanceof PooledBean)) {
+			throw new GiniException(clazz.getName() + " is not a pooled bean");
+		}
+		return (PooledBean) provider;
+	}
+
 	/**
 	 * Injects managed bean in provided object (via fields annotated
 	 * {@link Inject})
@@ -96,42 +377,464 @@ public class Gini {
 	public void inject(Object bean) {
 		Preconditions.checkNotNull(bean);
 
-		for (Field field : getInjectFields(bean)) {
-			Object dependency = store.getBean(field.getType(), field.getName());
-			injectField(bean, field, dependency);
+		injectors.getUnchecked(bean.getClass()).inject(bean, store);
+	}
+
+	/**
+	 * Adds the beans and advices of the given package to the context, or
+	 * replaces them if the package is already part of the context, typically
+	 * when a plugin is loaded again. Only the given package is scanned.
+	 * 
+	 * Beans of the package are created again, as well as the beans of other
+	 * packages whose advices have changed. Beans having an {@link Inject}
+	 * field of the type of a created or removed bean are injected again,
+	 * other beans are left as is. Beans having received a bean of the
+	 * package through their constructor keep it.
+	 * 
+	 * Caches of the {@link Cached} methods of the package are emptied and
+	 * its advices are instantiated again, advices of other packages are kept.
+	 * 
+	 * The refreshed beans are built aside and published at once, existing
+	 * beans being injected again only then : until the refresh is done, other
+	 * threads see the beans as they were before, and the context is left as
+	 * is if the refresh fails. Child contexts are not refreshed.
+	 * 
+	 * @param packageName
+	 */
+	public synchronized void refresh(String packageName) {
+		Preconditions.checkNotNull(packageName);
+
+		ClassIndex previous = index;
+		ClassIndex next = previous.without(packageName);
+		next.merge(createIndex(Collections.singleton(packageName)));
+		ConcurrentMap<Method, CachingAdvice> nextCaches = Maps.newConcurrentMap();
+		for (Map.Entry<Method, CachingAdvice> cache : caches.entrySet()) {
+			if (!isInPackage(cache.getKey().getDeclaringClass(), packageName)) {
+				nextCaches.put(cache.getKey(), cache.getValue());
+			}
+		}
+		ConcurrentMap<Class<?>, Object> nextAdvices = Maps.newConcurrentMap();
+		for (Map.Entry<Class<?>, Object> advice : advices.entrySet()) {
+			if (!isInPackage(advice.getKey(), packageName)) {
+				nextAdvices.put(advice.getKey(), advice.getValue());
+			}
 		}
+		BeanStore beans = store.copy();
+		beans.replaceInterceptors(computeInterceptors(next, nextCaches, nextAdvices));
+
+		Set<Class<?>> created = Sets.newHashSet();
+		for (Class<?> clazz : next.getManagedTypes()) {
+			if (isInPackage(clazz, packageName) || !getAdviceMethods(clazz, beans).equals(getAdviceMethods(clazz, store))) {
+				created.add(clazz);
+			}
+		}
+		Set<Class<?>> replaced = Sets.union(Sets.difference(previous.getManagedTypes(), next.getManagedTypes()), created).immutableCopy();
+		beans.unregister(replaced);
+		registerBeans(created, beans, next);
+		beans.freeze();
+
+		List<Object> createdBeans = Lists.newArrayList();
+		Map<Object, Object[]> injectables = Maps.newIdentityHashMap();
+		for (Object bean : beans.getBeans()) {
+			Injector injector = injectors.getUnchecked(bean.getClass());
+			if (created.contains(BEAN_CLASS.apply(bean))) {
+				createdBeans.add(bean);
+			} else if (injector.dependsOn(replaced)) {
+				injectables.put(bean, injector.resolve(beans));
+			}
+		}
+		inject(createdBeans, beans);
+
+		// nothing can fail from here : the refreshed beans are published
+		index = next;
+		caches = nextCaches;
+		advices = nextAdvices;
+		store.publish(beans);
+		constructors.keySet().removeAll(replaced);
+		for (Map.Entry<Object, Object[]> bean : injectables.entrySet()) {
+			injectors.getUnchecked(bean.getKey().getClass()).inject(bean.getKey(), bean.getValue());
+		}
+	}
+
+	private static boolean isInPackage(Class<?> clazz, String packageName) {
+		return ClassIndex.isInPackage(clazz.getName(), packageName);
 	}
 
-	private Set<Field> getInjectFields(Object bean) {
-		return getAllFields(getProxifiedClass(bean.getClass()), withAnnotation(Inject.class));
+	/**
+	 * @return the advice methods of each intercepted method of the given
+	 *         class in the given store
+	 */
+	private static SetMultimap<Method, Method> getAdviceMethods(Class<?> clazz, BeanStore beans) {
+		SetMultimap<Method, Method> adviceMethods = HashMultimap.create();
+		for (Map.Entry<Method, Interceptor> entry : beans.getInterceptorsPerMethod(clazz).entries()) {
+			adviceMethods.put(entry.getKey(), entry.getValue().getMethod());
+		}
+		return adviceMethods;
 	}
 
-	private void registerInterceptors() {
+	private ClassIndex createIndex(Set<String> packageNames) {
+		ClassIndex index = new ClassIndex();
+		if (useIndex) {
+			index.merge(ClassIndex.load(classLoader(), toArray(packageNames)));
+		}
+		String[] scannedPackageNames = toArray(Sets.difference(packageNames, index.getPackageNames()));
+		if (scannedPackageNames.length > 0) {
+			index.merge(scanExecutor != null ? ClassIndex.scan(scanExecutor, scannedPackageNames) : ClassIndex.scan(scannedPackageNames));
+		}
+		if (parent != null) {
+			index.mergeAdvices(parent.index);
+		}
+		return index;
+	}
+
+	private static ClassLoader classLoader() {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		return classLoader != null ? classLoader : Gini.class.getClassLoader();
+	}
+
+	private static String[] toArray(Set<String> packageNames) {
+		return packageNames.toArray(new String[packageNames.size()]);
+	}
+
+	private Set<Interceptor> computeInterceptors(ClassIndex index, ConcurrentMap<Method, CachingAdvice> caches, ConcurrentMap<Class<?>, Object> advices) {
+		InterceptorHelper interceptorHelper = new InterceptorHelper(index, caches, advices);
 		Set<Interceptor> interceptors = interceptorHelper.computeInterceptors();
-		store.registerInterceptors(interceptors);
+		profiler.joinpointEvaluations(interceptorHelper.getJoinpointEvaluations(), interceptorHelper.getRegexEvaluations());
+		return interceptors;
+	}
+
+	private SetMultimap<Method, Method> computeTargetMethods() {
+		InterceptorHelper interceptorHelper = new InterceptorHelper(index, caches, advices);
+		SetMultimap<Method, Method> targetMethods = interceptorHelper.computeTargetMethods();
+		profiler.joinpointEvaluations(interceptorHelper.getJoinpointEvaluations(), interceptorHelper.getRegexEvaluations());
+		return targetMethods;
 	}
 
-	private void registerBeans() {
-		for (Class<?> clazz : reflections.getTypesAnnotatedWith(Managed.class)) {
-			Object bean;
-			if (store.hasInterceptors(clazz)) {
-				bean = createProxy(clazz);
+	/**
+	 * Registers the beans of the given managed classes of the given index,
+	 * the beans they depend on being resolved from the given store
+	 */
+	private void registerBeans(Set<Class<?>> managedTypes, final BeanStore beans, final ClassIndex index) {
+		List<Class<?>> classes = Lists.newArrayList();
+		for (Class<?> clazz : CLASS_NAME_ORDERING.sortedCopy(managedTypes)) {
+			Managed managed = clazz.getAnnotation(Managed.class);
+			if (managed != null && managed.scope() != Scope.SINGLETON) {
+				beans.registerBeanProvider(createScopedBean(clazz, managed));
+			} else if (isLazy(clazz)) {
+				beans.registerBeanProvider(new LazyBean(clazz, beanInitializer));
 			} else {
-				bean = instantiate(clazz);
+				classes.add(clazz);
+			}
+		}
+		DependencyGraph graph = new DependencyGraph(index.getManagedTypes(), new Function<Class<?>, Class<?>[]>() {
+
+			@Override
+			public Class<?>[] apply(Class<?> clazz) {
+				return getConstructor(clazz).getParameterTypes();
+			}
+
+		}, new Function<Class<?>, Set<Field>>() {
+
+			@Override
+			public Set<Field> apply(Class<?> clazz) {
+				return index.getInjectFields(clazz);
+			}
+
+		}, new Predicate<Class<?>>() {
+
+			@Override
+			public boolean apply(Class<?> type) {
+				return parent != null && parent.store.hasBean(type);
+			}
+
+		});
+		for (List<Class<?>> level : graph.creationLevels(classes)) {
+			List<Object> created = BootstrapTasks.run(bootstrapExecutor, "create beans", level, new Function<Class<?>, Object>() {
+
+				@Override
+				public Object apply(Class<?> clazz) {
+					BootstrapProfiler.Sample start = profiler.start();
+					Object bean = createBean(clazz, beans, index);
+					profiler.bean(clazz, start);
+					return bean;
+				}
+
+			}, CLASS_NAME);
+			for (Object bean : created) {
+				beans.registerBean(bean);
 			}
-			store.registerBean(bean);
 		}
 	}
 
-	private Object createProxy(Class<?> clazz) {
-		SetMultimap<Method, Interceptor> interceptorsPerMethod = store.getInterceptorsPerMethod(clazz);
-		return org.theglump.gini.Reflections.createProxy(clazz, new MethodInterceptor(interceptorsPerMethod));
+	private BeanProvider createScopedBean(Class<?> clazz, Managed managed) {
+		switch (managed.scope()) {
+		case PROTOTYPE:
+			return new PrototypeBean(clazz, beanInitializer);
+		case THREAD:
+			return new ThreadBean(clazz, beanInitializer);
+		case POOLED:
+			return new PooledBean(clazz, managed.poolSize(), beanInitializer);
+		default:
+			throw new GiniException("Unsupported scope " + managed.scope() + " for " + clazz.getName());
+		}
+	}
+
+	private boolean isLazy(Class<?> clazz) {
+		Managed managed = clazz.getAnnotation(Managed.class);
+		return lazy || (managed != null && managed.lazy());
+	}
+
+	private Object createBean(Class<?> clazz, BeanStore beans, ClassIndex index) {
+		BeanConstructor constructor = getConstructor(clazz);
+		Object[] args = constructor.resolveArguments(beans);
+		if (beans.hasInterceptors(clazz)) {
+			return createProxy(clazz, constructor, args, beans, index);
+		}
+		return constructor.newInstance(args);
+	}
+
+	private BeanConstructor getConstructor(Class<?> clazz) {
+		BeanConstructor constructor = constructors.get(clazz);
+		if (constructor == null) {
+			constructor = BeanConstructor.forClass(clazz);
+			constructors.put(clazz, constructor);
+		}
+		return constructor;
+	}
+
+	private Object createProxy(Class<?> clazz, BeanConstructor constructor, Object[] args, BeanStore beans, ClassIndex index) {
+		SetMultimap<Method, Interceptor> interceptorsPerMethod = beans.getInterceptorsPerMethod(clazz);
+		Class<?> generatedProxy = generatedProxies ? index.getGeneratedProxy(clazz) : null;
+		if (generatedProxy != null && GeneratedProxies.overridesAll(generatedProxy, interceptorsPerMethod.keySet())) {
+			return GeneratedProxies.newInstance(generatedProxy, new MethodInterceptor(interceptorsPerMethod, metrics, asyncAdvices),
+					constructor.getParameterTypes(), args);
+		}
+		if (profiler.isRecording() && !ProxyClassCache.isCached(clazz, interceptorsPerMethod.keySet())) {
+			profiler.proxyClassGenerated();
+		}
+		return org.theglump.gini.Reflections.createProxy(clazz, new MethodInterceptor(interceptorsPerMethod, metrics, asyncAdvices),
+				interceptorsPerMethod.keySet(), constructor.getParameterTypes(), args);
+	}
+
+	private void inject(Collection<Object> beans, final BeanStore store) {
+		BootstrapTasks.run(bootstrapExecutor, "inject beans", CLASS_NAME_ORDERING.onResultOf(BEAN_CLASS).sortedCopy(beans), new Function<Object, Void>() {
+
+			@Override
+			public Void apply(Object bean) {
+				BootstrapProfiler.Sample start = profiler.start();
+				injectors.getUnchecked(bean.getClass()).inject(bean, store);
+				profiler.bean(BEAN_CLASS.apply(bean), start);
+				return null;
+			}
+
+		}, Functions.compose(CLASS_NAME, BEAN_CLASS));
 	}
 
-	private void inject() {
-		for (Object bean : store.getBeans()) {
-			inject(bean);
+	/**
+	 * Builder of {@link Gini} contexts
+	 */
+	public static class Builder {
+
+		private final Set<String> packageNames = Sets.newLinkedHashSet();
+		private Gini parent;
+		private ExecutorService scanExecutor;
+		private boolean useIndex = true;
+		private ExecutorService bootstrapExecutor;
+		private boolean lazy;
+		private boolean generatedProxies = true;
+		private boolean metrics;
+		private boolean profile;
+		private ExecutorService asyncExecutor;
+		private int asyncCapacity = DEFAULT_ASYNC_CAPACITY;
+		private File snapshot;
+
+		private Builder() {
+		}
+
+		/**
+		 * Adds packages to scan, all classes and sub-classes of these packages
+		 * are candidates to be managed
+		 *
+		 * @param packageNames
+		 * @return this builder
+		 */
+		public Builder packages(String... packageNames) {
+			for (String packageName : packageNames) {
+				this.packageNames.add(Preconditions.checkNotNull(packageName));
+			}
+			return this;
 		}
+
+		/**
+		 * Makes the new context a child of the given one. The child only
+		 * creates the beans of its own packages : beans of other types are
+		 * looked up in the parent, which is shared by all its children. The
+		 * advices of the parent also apply to the beans of the child, with
+		 * their own instances. Closing a child does not close its parent.
+		 *
+		 * @param parent
+		 * @return this builder
+		 */
+		public Builder parent(Gini parent) {
+			this.parent = Preconditions.checkNotNull(parent);
+			return this;
+		}
+
+		/**
+		 * Scans each package in its own task on the given executor, a
+		 * {@link java.util.concurrent.ForkJoinPool} for instance. Results are
+		 * merged in a single index. Packages are scanned sequentially when no
+		 * executor is given.
+		 *
+		 * @param scanExecutor
+		 * @return this builder
+		 */
+		public Builder scanExecutor(ExecutorService scanExecutor) {
+			this.scanExecutor = Preconditions.checkNotNull(scanExecutor);
+			return this;
+		}
+
+		/**
+		 * Whether packages found in the index written at build time by
+		 * {@link org.theglump.gini.processor.IndexProcessor} are loaded from it
+		 * instead of being scanned. Default is true.
+		 *
+		 * @param useIndex
+		 * @return this builder
+		 */
+		public Builder useIndex(boolean useIndex) {
+			this.useIndex = useIndex;
+			return this;
+		}
+
+		/**
+		 * Instantiates and injects beans in parallel on the given executor.
+		 * Beans are then constructed concurrently, so their constructors must
+		 * not depend on each other. When some beans cannot be created or
+		 * injected, all the errors are reported once every bean has been
+		 * processed, in the order of bean class names. The executor is only
+		 * used by the constructor of the context, the context and its beans
+		 * are fully visible to all threads once it returns.
+		 *
+		 * @param bootstrapExecutor
+		 * @return this builder
+		 */
+		public Builder bootstrapExecutor(ExecutorService bootstrapExecutor) {
+			this.bootstrapExecutor = Preconditions.checkNotNull(bootstrapExecutor);
+			return this;
+		}
+
+		/**
+		 * Makes every managed bean lazy, see {@link Managed#lazy()}. Default
+		 * is false, beans are then lazy only when their annotation says so.
+		 *
+		 * @param lazy
+		 * @return this builder
+		 */
+		public Builder lazy(boolean lazy) {
+			this.lazy = lazy;
+			return this;
+		}
+
+		/**
+		 * Whether beans are proxified by the classes generated at build time
+		 * by {@link org.theglump.gini.processor.IndexProcessor}, when they
+		 * override all the intercepted methods. Other beans are proxified by
+		 * classes generated by cglib. Default is true.
+		 *
+		 * @param generatedProxies
+		 * @return this builder
+		 */
+		public Builder generatedProxies(boolean generatedProxies) {
+			this.generatedProxies = generatedProxies;
+			return this;
+		}
+
+		/**
+		 * Records the number of calls, of errors and the latency distribution
+		 * of each advised method, see {@link Gini#getInterceptionStats()}.
+		 * Metrics are also exposed as MXBeans in the platform MBean server
+		 * until the context is closed. Default is false.
+		 *
+		 * @param metrics
+		 * @return this builder
+		 */
+		public Builder metrics(boolean metrics) {
+			this.metrics = metrics;
+			return this;
+		}
+
+		/**
+		 * Records the wall time and the allocations of each bootstrap phase
+		 * and of each bean, see {@link Gini#getBootstrapReport()}. Default
+		 * is false.
+		 *
+		 * @param profile
+		 * @return this builder
+		 */
+		public Builder profile(boolean profile) {
+			this.profile = profile;
+			return this;
+		}
+
+		/**
+		 * Runs {@link AfterAsync} advices on the given executor, a bounded
+		 * pool or a virtual thread executor for instance. The executor is not
+		 * shut down by the context. By default, async advices are run by a
+		 * single daemon thread.
+		 *
+		 * @param asyncExecutor
+		 * @return this builder
+		 */
+		public Builder asyncExecutor(ExecutorService asyncExecutor) {
+			this.asyncExecutor = Preconditions.checkNotNull(asyncExecutor);
+			return this;
+		}
+
+		/**
+		 * Maximum number of async advices pending at once, beyond which
+		 * callers wait or advices are dropped, see
+		 * {@link AfterAsync#overflow()}. Default is
+		 * {@value Gini#DEFAULT_ASYNC_CAPACITY}.
+		 *
+		 * @param asyncCapacity
+		 * @return this builder
+		 */
+		public Builder asyncCapacity(int asyncCapacity) {
+			Preconditions.checkArgument(asyncCapacity > 0, "Capacity must be positive : %s", asyncCapacity);
+			this.asyncCapacity = asyncCapacity;
+			return this;
+		}
+
+		/**
+		 * Saves the wiring of the context (managed beans, advices, injected
+		 * fields and intercepted methods) to the given file, from which the
+		 * context is initialized on the next starts without scanning the
+		 * classpath nor matching joinpoints. The snapshot is written again
+		 * when a class file of the packages of the context has changed, other
+		 * class files, such as those of super classes or annotations from
+		 * other packages, are not checked. A snapshot which cannot be written
+		 * does not fail the context, see {@link Gini#getSnapshotFailure()}.
+		 * Not supported by child contexts.
+		 *
+		 * @param snapshot
+		 * @return this builder
+		 */
+		public Builder snapshot(File snapshot) {
+			this.snapshot = Preconditions.checkNotNull(snapshot);
+			return this;
+		}
+
+		/**
+		 * Initializes the context
+		 *
+		 * @return the new context
+		 */
+		public Gini build() {
+			Preconditions.checkArgument(parent == null || snapshot == null, "Child contexts cannot be snapshotted");
+			return new Gini(this);
+		}
+
 	}
 
 }
@@ -0,0 +1,121 @@
+package org.theglump.gini;
+
+import static org.theglump.gini.Reflections.injectField;
+import static org.theglump.gini.Reflections.makeAccessible;
+
+import java.lang.reflect.Field;
+import java.util.Set;
+
+import org.theglump.gini.annotation.Inject;
+
+/**
+ * Injects the fields annotated with {@link Inject} of a given class.
+ * 
+ * Fields are looked up and made accessible once, when the injector is
+ * created. The beans to inject are resolved once per frozen
+ * {@link BeanStore} and kept as the plan of the injector, so injecting an
+ * instance then only sets fields. The plan is resolved again when the store
+ * has been frozen again since, after a refresh for instance.
+ * 
+ */
+class Injector {
+
+	private final Field[] fields;
+	private final Class<?>[] types;
+	private final String[] names;
+	private volatile Plan plan;
+
+	Injector(Set<Field> injectFields) {
+		this.fields = new Field[injectFields.size()];
+		this.types = new Class<?>[fields.length];
+		this.names = new String[fields.length];
+		int i = 0;
+		for (Field field : injectFields) {
+			fields[i] = makeAccessible(field);
+			types[i] = field.getType();
+			names[i] = field.getName();
+			i++;
+		}
+	}
+
+	/**
+	 * @param classes
+	 * @return true if one of the given classes can be injected in a field
+	 */
+	boolean dependsOn(Set<Class<?>> classes) {
+		for (Class<?> type : types) {
+			for (Class<?> clazz : classes) {
+				if (type.isAssignableFrom(clazz)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	void inject(Object bean, BeanStore store) {
+		Object[] candidates = getCandidates(store);
+		for (int i = 0; i < fields.length; i++) {
+			injectField(bean, fields[i], BeanStore.getInjectable(candidates[i], types[i]));
+		}
+	}
+
+	/**
+	 * @param store
+	 * @return the objects to inject in each field, resolved from the given
+	 *         store, for {@link #inject(Object, Object[])}
+	 */
+	Object[] resolve(BeanStore store) {
+		Object[] candidates = getCandidates(store);
+		Object[] injectables = new Object[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			injectables[i] = BeanStore.getInjectable(candidates[i], types[i]);
+		}
+		return injectables;
+	}
+
+	/**
+	 * Sets the fields of the given bean
+	 * 
+	 * @param bean
+	 * @param injectables
+	 *            returned by {@link #resolve(BeanStore)}
+	 */
+	void inject(Object bean, Object[] injectables) {
+		for (int i = 0; i < fields.length; i++) {
+			injectField(bean, fields[i], injectables[i]);
+		}
+	}
+
+	private Object[] getCandidates(BeanStore store) {
+		Plan plan = this.plan;
+		if (plan != null && store.isCurrent(plan.frozenTable)) {
+			return plan.candidates;
+		}
+		// read before resolving : a plan resolved while the store is frozen
+		// again is not current
+		Object frozenTable = store.getFrozenTable();
+		Object[] candidates = store.getCandidates(types, names);
+		if (frozenTable != null) {
+			this.plan = new Plan(frozenTable, candidates);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Beans and providers to inject in each field, resolved from a frozen
+	 * table of a store
+	 */
+	private static class Plan {
+
+		private final Object frozenTable;
+		private final Object[] candidates;
+
+		Plan(Object frozenTable, Object[] candidates) {
+			this.frozenTable = frozenTable;
+			this.candidates = candidates;
+		}
+
+	}
+
+}
@@ -0,0 +1,26 @@
+package org.theglump.gini;
+
+/**
+ * Interception metrics of an advised method, registered in the platform
+ * MBean server by contexts built with {@link Gini.Builder#metrics(boolean)}
+ * 
+ */
+public interface InterceptedMethodMXBean {
+
+	String getMethod();
+
+	long getCount();
+
+	long getErrorCount();
+
+	double getMeanNanos();
+
+	long getMaxNanos();
+
+	long get50thPercentileNanos();
+
+	long get99thPercentileNanos();
+
+	long get999thPercentileNanos();
+
+}
@@ -0,0 +1,86 @@
+package org.theglump.gini;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Recorders of the advised methods of a context. Each recorder is registered
+ * in the platform MBean server as
+ * <code>org.theglump.gini:type=InterceptedMethod,context=&lt;n&gt;,method=&lt;method&gt;</code>
+ * until the context is closed.
+ * 
+ */
+class InterceptionMetrics {
+
+	private static final String DOMAIN = "org.theglump.gini";
+	private static final AtomicInteger CONTEXTS = new AtomicInteger();
+
+	private final String context = String.valueOf(CONTEXTS.incrementAndGet());
+	private final ConcurrentMap<Method, LatencyRecorder> recorders = Maps.newConcurrentMap();
+	private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+	/**
+	 * Returns the recorder of the given method, created and registered on
+	 * first call
+	 */
+	LatencyRecorder recorder(Method method) {
+		LatencyRecorder recorder = recorders.get(method);
+		if (recorder == null) {
+			LatencyRecorder created = new LatencyRecorder(method);
+			recorder = recorders.putIfAbsent(method, created);
+			if (recorder == null) {
+				recorder = created;
+				register(method, created);
+			}
+		}
+		return recorder;
+	}
+
+	Map<Method, InterceptionStats> snapshot() {
+		ImmutableMap.Builder<Method, InterceptionStats> stats = ImmutableMap.builder();
+		for (Map.Entry<Method, LatencyRecorder> entry : recorders.entrySet()) {
+			stats.put(entry.getKey(), entry.getValue().snapshot());
+		}
+		return stats.build();
+	}
+
+	/**
+	 * Unregisters the MBeans of the recorders, recording goes on
+	 */
+	void unregister() {
+		for (Method method : recorders.keySet()) {
+			try {
+				ObjectName name = objectName(method);
+				if (server.isRegistered(name)) {
+					server.unregisterMBean(name);
+				}
+			} catch (JMException e) {
+				throw new GiniException("Could not unregister metrics of " + method, e);
+			}
+		}
+	}
+
+	private void register(Method method, LatencyRecorder recorder) {
+		try {
+			server.registerMBean(new StandardMBean(recorder, InterceptedMethodMXBean.class, true), objectName(method));
+		} catch (JMException e) {
+			throw new GiniException("Could not register metrics of " + method, e);
+		}
+	}
+
+	private ObjectName objectName(Method method) throws JMException {
+		return new ObjectName(DOMAIN + ":type=InterceptedMethod,context=" + context + ",method=" + ObjectName.quote(method.toString()));
+	}
+
+}
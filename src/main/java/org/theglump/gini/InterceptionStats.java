@@ -0,0 +1,86 @@
+package org.theglump.gini;
+
+import java.lang.reflect.Method;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * Statistics of the calls of an advised method : number of calls, of calls
+ * having thrown an exception, and latency distribution. Latencies include the
+ * advices and are known with a precision of 12.5%.
+ * 
+ */
+public class InterceptionStats {
+
+	private final Method method;
+	private final long[] buckets;
+	private final long count;
+	private final long errorCount;
+	private final long totalNanos;
+	private final long maxNanos;
+
+	InterceptionStats(Method method, long[] buckets, long errorCount, long totalNanos, long maxNanos) {
+		this.method = method;
+		this.buckets = buckets;
+		long count = 0;
+		for (long bucket : buckets) {
+			count += bucket;
+		}
+		this.count = count;
+		this.errorCount = errorCount;
+		this.totalNanos = totalNanos;
+		this.maxNanos = maxNanos;
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	public double getMeanNanos() {
+		return count == 0 ? 0 : (double) totalNanos / count;
+	}
+
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	/**
+	 * Returns the latency below which the given percentage of calls are
+	 *
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return the latency in nanoseconds, 0 when no call was recorded
+	 */
+	public long getPercentileNanos(double percentile) {
+		Preconditions.checkArgument(percentile >= 0 && percentile <= 100, "Percentile must be between 0 and 100 : %s", percentile);
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if (seen >= rank) {
+				return Math.min(LatencyRecorder.highestValue(i), maxNanos);
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public String toString() {
+		return MoreObjects.toStringHelper(this).add("method", method).add("count", count).add("errorCount", errorCount).add("mean", getMeanNanos())
+				.add("p50", getPercentileNanos(50)).add("p99", getPercentileNanos(99)).add("max", maxNanos).toString();
+	}
+
+}
@@ -1,18 +1,50 @@
 package org.theglump.gini;
 
 import java.lang.reflect.Method;
-import java.util.List;
 import java.util.Set;
 
+import org.theglump.gini.annotation.AfterAsync;
+import org.theglump.gini.annotation.Around;
+
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.Ordering;
+
 class Interceptor {
+
+	/**
+	 * Order of interceptors in a chain, see {@link Around#order()}
+	 */
+	static final Ordering<Interceptor> CHAIN_ORDERING = new Ordering<Interceptor>() {
+
+		@Override
+		public int compare(Interceptor left, Interceptor right) {
+			return ComparisonChain.start().compare(left.order, right.order)
+					.compare(left.method.getDeclaringClass().getName(), right.method.getDeclaringClass().getName())
+					.compare(left.method.getName(), right.method.getName()).result();
+		}
+
+	};
+
 	private Object advice;
 	private Method method;
 	private Set<Method> interceptedMethods;
+	private int order;
+	private AfterAsync.Overflow overflow;
 
 	Interceptor(Object advice, Method method, Set<Method> interceptedMethods) {
+		this(advice, method, interceptedMethods, method.isAnnotationPresent(Around.class) ? method.getAnnotation(Around.class).order() : 0);
+	}
+
+	/**
+	 * Used by built-in advices, whose order is not given by the advice method
+	 */
+	Interceptor(Object advice, Method method, Set<Method> interceptedMethods, int order) {
 		this.advice = advice;
 		this.method = method;
 		this.interceptedMethods = interceptedMethods;
+		this.order = order;
+		AfterAsync afterAsync = method.getAnnotation(AfterAsync.class);
+		this.overflow = afterAsync != null ? afterAsync.overflow() : null;
 	}
 
 	public Object getAdvice() {
@@ -26,4 +58,22 @@ class Interceptor {
 	public Set<Method> getInterceptedMethods() {
 		return interceptedMethods;
 	}
+
+	public int getOrder() {
+		return order;
+	}
+
+	/**
+	 * @return true if the advice method is annotated with {@link AfterAsync}
+	 */
+	public boolean isAsync() {
+		return overflow != null;
+	}
+
+	/**
+	 * @return the overflow policy of an async advice, null otherwise
+	 */
+	public AfterAsync.Overflow getOverflow() {
+		return overflow;
+	}
 }
@@ -1,80 +1,267 @@
 package org.theglump.gini;
 
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
 import com.google.common.collect.Sets;
 import org.reflections.ReflectionUtils;
-import org.theglump.gini.annotation.Advice;
-import org.theglump.gini.annotation.Around;
-import org.theglump.gini.annotation.Managed;
+import org.theglump.gini.annotation.AfterAsync;
+import org.theglump.gini.annotation.Cached;
 
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
-
-import static org.reflections.ReflectionUtils.getMethods;
-import static org.reflections.ReflectionUtils.withAnnotation;
+import java.util.concurrent.ConcurrentMap;
 
 public class InterceptorHelper {
 
-    private final org.reflections.Reflections reflections;
+    private final ClassIndex index;
+    private final ConcurrentMap<Method, CachingAdvice> caches;
+    private final ConcurrentMap<Class<?>, Object> advices;
+    private int joinpointEvaluations;
+    private int regexEvaluations;
 
     protected InterceptorHelper(String packageName) {
-        this.reflections = new org.reflections.Reflections(packageName);
+        this(ClassIndex.scan(packageName));
+    }
+
+    protected InterceptorHelper(ClassIndex index) {
+        this(index, Maps.<Method, CachingAdvice> newConcurrentMap(), Maps.<Class<?>, Object> newConcurrentMap());
+    }
+
+    /**
+     * @param index
+     * @param caches
+     *            caching advices of the context by {@link Cached} method,
+     *            reused when interceptors are computed again so that cached
+     *            results and statistics are kept
+     * @param advices
+     *            advices of the context by class, reused when interceptors
+     *            are computed again so that advices keep their state
+     */
+    protected InterceptorHelper(ClassIndex index, ConcurrentMap<Method, CachingAdvice> caches, ConcurrentMap<Class<?>, Object> advices) {
+        this.index = index;
+        this.caches = caches;
+        this.advices = advices;
     }
 
     protected Set<Interceptor> computeInterceptors() {
+        return createInterceptors(computeTargetMethods());
+    }
+
+    /**
+     * Matches the pointcuts of the advices against the public methods of the
+     * managed types : annotated methods are looked up in the annotation index
+     * and only matched against the joinpoint if one is given, other
+     * joinpoints are evaluated against all the methods
+     *
+     * @return the methods intercepted by each advice method,
+     *         {@link CachingAdvice#METHOD} being mapped to the methods
+     *         annotated with {@link Cached}
+     */
+    protected SetMultimap<Method, Method> computeTargetMethods() {
+        SetMultimap<Method, Method> targetMethodsPerAdvice = HashMultimap.create();
+        Map<Class<?>, SetMultimap<String, Method>> publicManagedMethods = null;
+        Map<Class<?>, String[]> typeNames = Maps.newHashMap();
+        for (Class<?> clazz : index.getAdviceTypes()) {
+            for (Method adviceMethod : index.getAdviceMethods(clazz)) {
+                String joinpoint = index.getJoinpoint(adviceMethod);
+                Class<? extends Annotation> annotation = index.getAnnotatedWith(adviceMethod);
+                Set<Method> targetMethods;
+                if (annotation != null) {
+                    targetMethods = index.getAnnotatedMethods(annotation);
+                    if (!joinpoint.isEmpty()) {
+                        targetMethods = getTargetMethods(JoinpointMatcher.compile(joinpoint), targetMethods, typeNames);
+                    }
+                } else if (!joinpoint.isEmpty()) {
+                    if (publicManagedMethods == null) {
+                        publicManagedMethods = getManagedPublicMethodsByName();
+                    }
+                    targetMethods = getTargetMethods(JoinpointMatcher.compile(joinpoint), publicManagedMethods, typeNames);
+                } else {
+                    throw new GiniException("Advice " + adviceMethod + " must have a joinpoint or an annotation");
+                }
+                if (TypedAdvices.isTyped(adviceMethod)) {
+                    targetMethods = getTypedTargetMethods(adviceMethod, targetMethods);
+                }
+                targetMethodsPerAdvice.putAll(adviceMethod, targetMethods);
+            }
+        }
+        targetMethodsPerAdvice.putAll(CachingAdvice.METHOD, index.getAnnotatedMethods(Cached.class));
+        return targetMethodsPerAdvice;
+    }
+
+    /**
+     * Creates the interceptors of the given advice methods, each advice
+     * being instantiated once, unless already given to the helper. Advice methods inherited by several advices
+     * get an interceptor per advice.
+     *
+     * @param targetMethodsPerAdvice
+     *            as computed by {@link #computeTargetMethods()}
+     * @return interceptors
+     * @throws GiniException
+     *             if an async advice method does not take the arguments
+     *             given by {@link AsyncAdviceExecutor}, or if a
+     *             {@link Cached} method returns void
+     */
+    protected Set<Interceptor> createInterceptors(SetMultimap<Method, Method> targetMethodsPerAdvice) {
         Set<Interceptor> interceptors = Sets.newHashSet();
-        Set<Method> publicManagedMethods = getManagedPublicMethods();
-        for (Class<?> clazz : reflections.getTypesAnnotatedWith(Advice.class)) {
-            Object advice = Reflections.instantiate(clazz);
-            for (Method aroundMethod : getMethods(clazz, withAnnotation(Around.class))) {
-                String jointpoint = jointpoint(aroundMethod);
-                Set<Method> targetMethods = getTargetMethods(jointpoint, publicManagedMethods);
-                if (targetMethods.size() > 0) {
-                    Interceptor interceptor = new Interceptor(advice, aroundMethod, targetMethods);
-                    interceptors.add(interceptor);
+        for (Class<?> clazz : index.getAdviceTypes()) {
+            Object advice = null;
+            for (Method adviceMethod : index.getAdviceMethods(clazz)) {
+                if (adviceMethod.isAnnotationPresent(AfterAsync.class)) {
+                    AsyncAdviceExecutor.checkAdviceMethod(adviceMethod);
+                }
+                Set<Method> targetMethods = targetMethodsPerAdvice.get(adviceMethod);
+                if (!targetMethods.isEmpty()) {
+                    if (advice == null) {
+                        advice = getAdvice(clazz);
+                    }
+                    interceptors.add(new Interceptor(advice, adviceMethod, Sets.newHashSet(targetMethods)));
                 }
             }
         }
+        for (Method method : targetMethodsPerAdvice.get(CachingAdvice.METHOD)) {
+            if (method.getReturnType() == void.class) {
+                throw new GiniException("Cached method " + method + " must return a value");
+            }
+            Cached cached = method.getAnnotation(Cached.class);
+            interceptors.add(new Interceptor(getCachingAdvice(method, cached), CachingAdvice.METHOD, Collections.singleton(method), cached.order()));
+        }
         return interceptors;
     }
 
-    private Set<Method> getTargetMethods(final String joinpoint, Set<Method> candidateMethodsForInterception) {
-        return Sets.filter(candidateMethodsForInterception, new Predicate<Method>() {
+    /**
+     * @return the number of joinpoints evaluated against a method path by
+     *         {@link #computeTargetMethods()}
+     */
+    protected int getJoinpointEvaluations() {
+        return joinpointEvaluations;
+    }
 
-            @Override
-            public boolean apply(Method method) {
-                return Iterables.any(computeMethodPathes(method), new Predicate<String>() {
+    /**
+     * @return the number of evaluations done by a regular expression, among
+     *         {@link #getJoinpointEvaluations()}
+     */
+    protected int getRegexEvaluations() {
+        return regexEvaluations;
+    }
 
-                    @Override
-                    public boolean apply(String methodPath) {
-                        return methodPath.matches(joinpoint);
-                    }
-                });
+    /**
+     * Typed advices only intercept the matched methods having their parameter
+     * and return types
+     */
+    private Set<Method> getTypedTargetMethods(Method adviceMethod, Set<Method> targetMethods) {
+        TypedAdvices.getProceedMethod(adviceMethod);
+        Set<Method> typedTargetMethods = Sets.newHashSet();
+        for (Method method : targetMethods) {
+            if (TypedAdvices.accepts(adviceMethod, method)) {
+                typedTargetMethods.add(method);
             }
+        }
+        return typedTargetMethods;
+    }
+
+    private Object getAdvice(Class<?> clazz) {
+        Object advice = advices.get(clazz);
+        if (advice == null) {
+            Object created = Reflections.instantiate(clazz);
+            advice = advices.putIfAbsent(clazz, created);
+            if (advice == null) {
+                advice = created;
+            }
+        }
+        return advice;
+    }
+
+    private CachingAdvice getCachingAdvice(Method method, Cached cached) {
+        CachingAdvice advice = caches.get(method);
+        if (advice == null) {
+            CachingAdvice created = new CachingAdvice(cached);
+            advice = caches.putIfAbsent(method, created);
+            if (advice == null) {
+                advice = created;
+            }
+        }
+        return advice;
+    }
+
+    /**
+     * Methods are grouped by declaring class and name : the joinpoint is
+     * evaluated once per class hierarchy and method name, whatever the
+     * number of overloads
+     */
+    private Set<Method> getTargetMethods(JoinpointMatcher joinpoint, Map<Class<?>, SetMultimap<String, Method>> candidateMethodsForInterception,
+            Map<Class<?>, String[]> typeNames) {
+        Set<Method> targetMethods = Sets.newHashSet();
+        for (Map.Entry<Class<?>, SetMultimap<String, Method>> entry : candidateMethodsForInterception.entrySet()) {
+            String[] classTypeNames = getTypeNames(entry.getKey(), typeNames);
+            for (String methodName : entry.getValue().keySet()) {
+                if (matchesAny(joinpoint, classTypeNames, methodName)) {
+                    targetMethods.addAll(entry.getValue().get(methodName));
+                }
+            }
+        }
+        return targetMethods;
+    }
 
-        });
+    /**
+     * Evaluates the joinpoint against each of the given methods only
+     */
+    private Set<Method> getTargetMethods(JoinpointMatcher joinpoint, Set<Method> candidateMethods, Map<Class<?>, String[]> typeNames) {
+        Set<Method> targetMethods = Sets.newHashSet();
+        for (Method method : candidateMethods) {
+            if (matchesAny(joinpoint, getTypeNames(method.getDeclaringClass(), typeNames), method.getName())) {
+                targetMethods.add(method);
+            }
+        }
+        return targetMethods;
     }
 
-    private String jointpoint(Method aroundMethod) {
-        return aroundMethod.getAnnotation(Around.class).joinpoint();
+    private boolean matchesAny(JoinpointMatcher joinpoint, String[] typeNames, String methodName) {
+        for (String typeName : typeNames) {
+            joinpointEvaluations++;
+            if (joinpoint.isRegex()) {
+                regexEvaluations++;
+            }
+            if (joinpoint.matches(typeName, methodName)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private Set<Method> getManagedPublicMethods() {
-        Set<Method> methods = Sets.newHashSet();
-        for (Class<?> clazz : reflections.getTypesAnnotatedWith(Managed.class)) {
-            methods.addAll(Reflections.getPublicMethods(clazz));
+    private Map<Class<?>, SetMultimap<String, Method>> getManagedPublicMethodsByName() {
+        Map<Class<?>, SetMultimap<String, Method>> methods = Maps.newHashMap();
+        for (Method method : index.getManagedPublicMethods()) {
+            SetMultimap<String, Method> classMethods = methods.get(method.getDeclaringClass());
+            if (classMethods == null) {
+                classMethods = HashMultimap.create();
+                methods.put(method.getDeclaringClass(), classMethods);
+            }
+            classMethods.put(method.getName(), method);
         }
         return methods;
     }
 
-    private Set<String> computeMethodPathes(Method method) {
-        Set<String> methodPathes = Sets.newHashSet();
-        methodPathes.add(method.getDeclaringClass().getName() + "." + method.getName());
-        for (Class<?> clazz : ReflectionUtils.getAllSuperTypes(method.getDeclaringClass())) {
-            methodPathes.add(clazz.getName() + "." + method.getName());
+    /**
+     * Names of the given class and of its super types, computed once per
+     * class
+     */
+    private String[] getTypeNames(Class<?> clazz, Map<Class<?>, String[]> typeNames) {
+        String[] classTypeNames = typeNames.get(clazz);
+        if (classTypeNames == null) {
+            Set<String> names = Sets.newLinkedHashSet();
+            names.add(clazz.getName());
+            for (Class<?> superType : ReflectionUtils.getAllSuperTypes(clazz)) {
+                names.add(superType.getName());
+            }
+            classTypeNames = names.toArray(new String[names.size()]);
+            typeNames.put(clazz, classTypeNames);
         }
-        return methodPathes;
+        return classTypeNames;
     }
 
 }
@@ -0,0 +1,174 @@
+package org.theglump.gini;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Joinpoint compiled once, matching method pathes of form
+ * <i>package.Class.method</i>.
+ * 
+ * Joinpoints only made of literal characters, <code>.</code> and
+ * <code>.*</code> (like <code>.*Step.*implemName</code>) are matched by a
+ * wildcard matcher, others by a precompiled {@link Pattern}. In both cases
+ * the method path is not concatenated, each matcher reusing a single
+ * {@link MethodPath}.
+ * 
+ * Matchers are not thread safe.
+ * 
+ */
+abstract class JoinpointMatcher {
+
+	private static final String REGEX_META_CHARACTERS = "\\[](){}?+*|^$";
+
+	/**
+	 * Compiles the given joinpoint
+	 * 
+	 * @param joinpoint
+	 *            regexp matching method pathes
+	 * @return the matcher
+	 */
+	static JoinpointMatcher compile(String joinpoint) {
+		String withoutWildcards = joinpoint.replace(".*", "");
+		for (int i = 0; i < withoutWildcards.length(); i++) {
+			if (REGEX_META_CHARACTERS.indexOf(withoutWildcards.charAt(i)) >= 0) {
+				return new RegexMatcher(joinpoint);
+			}
+		}
+		return new WildcardMatcher(joinpoint);
+	}
+
+	/**
+	 * @param typeName
+	 *            fully qualified name of the class
+	 * @param methodName
+	 * @return true if <i>typeName.methodName</i> matches the joinpoint
+	 */
+	abstract boolean matches(String typeName, String methodName);
+
+	/**
+	 * @return true if the joinpoint is evaluated by a regular expression
+	 */
+	abstract boolean isRegex();
+
+	private final MethodPath path = new MethodPath();
+
+	/**
+	 * @return the path of the given method, valid until the next call
+	 */
+	MethodPath path(String typeName, String methodName) {
+		return path.set(typeName, methodName);
+	}
+
+	/**
+	 * Method path seen as a {@link CharSequence}, without concatenation
+	 */
+	static class MethodPath implements CharSequence {
+
+		private String typeName;
+		private String methodName;
+
+		MethodPath set(String typeName, String methodName) {
+			this.typeName = typeName;
+			this.methodName = methodName;
+			return this;
+		}
+
+		@Override
+		public int length() {
+			return typeName.length() + 1 + methodName.length();
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < typeName.length()) {
+				return typeName.charAt(index);
+			} else if (index == typeName.length()) {
+				return '.';
+			}
+			return methodName.charAt(index - typeName.length() - 1);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return toString().subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return typeName + "." + methodName;
+		}
+
+	}
+
+	private static class RegexMatcher extends JoinpointMatcher {
+
+		private final Matcher matcher;
+
+		RegexMatcher(String joinpoint) {
+			this.matcher = Pattern.compile(joinpoint).matcher("");
+		}
+
+		@Override
+		boolean matches(String typeName, String methodName) {
+			return matcher.reset(path(typeName, methodName)).matches();
+		}
+
+		@Override
+		boolean isRegex() {
+			return true;
+		}
+
+	}
+
+	private static class WildcardMatcher extends JoinpointMatcher {
+
+		private static final char ANY_CHARACTER = '.';
+		private static final char ANY_SEQUENCE = '*';
+
+		/**
+		 * Joinpoint where <code>.*</code> is replaced by
+		 * {@link #ANY_SEQUENCE}, other characters are kept
+		 */
+		private final String pattern;
+
+		WildcardMatcher(String joinpoint) {
+			this.pattern = joinpoint.replace(".*", String.valueOf(ANY_SEQUENCE));
+		}
+
+		@Override
+		boolean isRegex() {
+			return false;
+		}
+
+		@Override
+		boolean matches(String typeName, String methodName) {
+			MethodPath path = path(typeName, methodName);
+			int length = path.length();
+			int p = 0;
+			int s = 0;
+			int lastSequence = -1;
+			int lastSequenceStart = 0;
+			while (s < length) {
+				if (p < pattern.length() && pattern.charAt(p) != ANY_SEQUENCE
+						&& (pattern.charAt(p) == ANY_CHARACTER || pattern.charAt(p) == path.charAt(s))) {
+					p++;
+					s++;
+				} else if (p < pattern.length() && pattern.charAt(p) == ANY_SEQUENCE) {
+					lastSequence = p++;
+					lastSequenceStart = s;
+				} else if (lastSequence >= 0) {
+					p = lastSequence + 1;
+					s = ++lastSequenceStart;
+				} else {
+					return false;
+				}
+			}
+			while (p < pattern.length() && pattern.charAt(p) == ANY_SEQUENCE) {
+				p++;
+			}
+			return p == pattern.length();
+		}
+
+	}
+
+}
@@ -0,0 +1,134 @@
+package org.theglump.gini;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the calls of an advised method without locking : latencies are
+ * counted in log-linear buckets (each power of 2 is split in 8 buckets, so
+ * recorded values are known with a precision of 12.5%), the same way HDR
+ * histograms do.
+ * 
+ */
+class LatencyRecorder implements InterceptedMethodMXBean {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	/** Values below this bound have their own bucket */
+	private static final int LINEAR_BUCKET_COUNT = 2 * SUB_BUCKET_COUNT;
+	private static final int LINEAR_MAGNITUDE = SUB_BUCKET_BITS + 1;
+	static final int BUCKET_COUNT = bucket(Long.MAX_VALUE) + 1;
+
+	private final Method method;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong errorCount = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	LatencyRecorder(Method method) {
+		this.method = method;
+	}
+
+	/**
+	 * Records a call
+	 *
+	 * @param nanos
+	 *            duration of the call
+	 * @param failed
+	 *            whether the call threw an exception
+	 */
+	void record(long nanos, boolean failed) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		buckets.incrementAndGet(bucket(nanos));
+		totalNanos.addAndGet(nanos);
+		if (failed) {
+			errorCount.incrementAndGet();
+		}
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+	}
+
+	/**
+	 * Copies the recorded values, calls recorded concurrently may be partially
+	 * taken into account
+	 *
+	 * @return the statistics of the method
+	 */
+	InterceptionStats snapshot() {
+		long[] counts = new long[BUCKET_COUNT];
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+		}
+		return new InterceptionStats(method, counts, errorCount.get(), totalNanos.get(), maxNanos.get());
+	}
+
+	static int bucket(long value) {
+		if (value < LINEAR_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int shift = magnitude - SUB_BUCKET_BITS;
+		int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+		return LINEAR_BUCKET_COUNT + (magnitude - LINEAR_MAGNITUDE) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * @return the highest value counted in the given bucket
+	 */
+	static long highestValue(int bucket) {
+		if (bucket < LINEAR_BUCKET_COUNT) {
+			return bucket;
+		}
+		int magnitude = LINEAR_MAGNITUDE + (bucket - LINEAR_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+		int subBucket = (bucket - LINEAR_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+		int shift = magnitude - SUB_BUCKET_BITS;
+		long lowest = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+		return lowest + ((1L << shift) - 1);
+	}
+
+	@Override
+	public String getMethod() {
+		return method.toString();
+	}
+
+	@Override
+	public long getCount() {
+		return snapshot().getCount();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return errorCount.get();
+	}
+
+	@Override
+	public double getMeanNanos() {
+		return snapshot().getMeanNanos();
+	}
+
+	@Override
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	@Override
+	public long get50thPercentileNanos() {
+		return snapshot().getPercentileNanos(50);
+	}
+
+	@Override
+	public long get99thPercentileNanos() {
+		return snapshot().getPercentileNanos(99);
+	}
+
+	@Override
+	public long get999thPercentileNanos() {
+		return snapshot().getPercentileNanos(99.9);
+	}
+
+}
@@ -0,0 +1,155 @@
+package org.theglump.gini;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sf.cglib.proxy.LazyLoader;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Managed bean created, and injected, the first time it is requested.
+ * 
+ * Until then, injection points typed by an interface receive a holder : a
+ * proxy implementing the interfaces of the bean and creating it on its first
+ * method call.
+ * 
+ */
+class LazyBean extends BeanProvider {
+
+	/**
+	 * Lazy bean each thread is waiting for
+	 */
+	private static final ConcurrentMap<Thread, LazyBean> WAITING = Maps.newConcurrentMap();
+
+	private volatile Object instance;
+	private volatile Object holder;
+	/**
+	 * Thread creating and injecting the bean
+	 */
+	private volatile Thread owner;
+	/**
+	 * Bean being injected, given to the cyclic dependencies of the bean so
+	 * that they get the bean under construction
+	 */
+	private volatile Object initializing;
+
+	LazyBean(Class<?> beanClass, Initializer initializer) {
+		super(beanClass, initializer);
+	}
+
+	boolean isInitialized() {
+		return instance != null;
+	}
+
+	/**
+	 * Returns the bean, creating and injecting it if needed. The bean is
+	 * created and injected without holding any lock : other threads wait for
+	 * it, unless they are creating a bean the owner thread is waiting for,
+	 * directly or not. They then get the bean under construction, as a cyclic
+	 * dependency created by a single thread would.
+	 * 
+	 * @return bean
+	 */
+	@Override
+	Object get() {
+		Object bean = instance;
+		if (bean != null) {
+			return bean;
+		}
+		Thread current = Thread.currentThread();
+		synchronized (this) {
+			while (owner != null) {
+				if (instance != null) {
+					return instance;
+				} else if (owner == current || isWaitingFor(owner, current)) {
+					return underConstruction();
+				}
+				WAITING.put(current, this);
+				try {
+					if (isWaitingFor(owner, current)) {
+						return underConstruction();
+					}
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new GiniException("Interrupted while waiting for lazy bean " + getBeanClass().getName(), e);
+				} finally {
+					WAITING.remove(current);
+				}
+			}
+			if (instance != null) {
+				return instance;
+			}
+			owner = current;
+		}
+		try {
+			bean = getInitializer().create(getBeanClass());
+			initializing = bean;
+			getInitializer().inject(bean);
+			instance = bean;
+			return bean;
+		} finally {
+			synchronized (this) {
+				owner = null;
+				initializing = null;
+				notifyAll();
+			}
+		}
+	}
+
+	private Object underConstruction() {
+		Object bean = initializing;
+		if (bean == null) {
+			throw new GiniException("Cyclic dependency on lazy bean " + getBeanClass().getName() + " while it is constructed");
+		}
+		return bean;
+	}
+
+	/**
+	 * @return true if the given thread waits, directly or through other
+	 *         threads, for a lazy bean created by the given waiting thread
+	 */
+	private static boolean isWaitingFor(Thread thread, Thread waiting) {
+		Set<Thread> visited = Sets.newHashSet();
+		for (Thread t = thread; t != null && visited.add(t);) {
+			if (t == waiting) {
+				return true;
+			}
+			LazyBean bean = WAITING.get(t);
+			t = bean != null ? bean.owner : null;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the object to inject in a field of the given type : the bean
+	 * if it is already created or if the type is not an interface, its
+	 * holder otherwise
+	 * 
+	 * @param fieldType
+	 * @return bean or holder
+	 */
+	@Override
+	Object getInjectable(Class<?> fieldType) {
+		Object bean = instance;
+		if (bean != null || !fieldType.isInterface()) {
+			return get();
+		}
+		Object holder = this.holder;
+		if (holder == null) {
+			holder = Reflections.createLazyProxy(getInterfaces(), new LazyLoader() {
+
+				@Override
+				public Object loadObject() {
+					return get();
+				}
+
+			});
+			this.holder = holder;
+		}
+		return holder;
+	}
+
+}
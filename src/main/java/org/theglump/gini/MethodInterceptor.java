@@ -1,38 +1,261 @@
 package org.theglump.gini;
 
 import java.lang.reflect.Method;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
 
 import net.sf.cglib.proxy.MethodProxy;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 
 /**
- * This class is used to proxify a bean. It delegates the call to the matching
- * interceptor.
+ * This class is used to proxify a bean. It delegates the call to the chain of
+ * interceptors of the called method, ordered by
+ * {@link Interceptor#CHAIN_ORDERING}.
+ * 
+ * Chains are bound to the first bean calling them : the {@link MethodInvoker}
+ * of each link is then created once and reused by every call, so that
+ * dispatching a call to advices does not allocate anything.
+ * 
+ * When the context records metrics, each chain times its calls with the
+ * {@link LatencyRecorder} of its method.
+ * 
+ * Advices annotated with {@link org.theglump.gini.annotation.AfterAsync} are
+ * not part of the chain : they are submitted to the
+ * {@link AsyncAdviceExecutor} of the context once the call is done.
+ * 
+ * The same interceptor is used by the {@link GeneratedProxy} classes written
+ * at build time : their methods are then identified by index, and the method
+ * of the managed class is called by the proxy itself instead of a
+ * {@link MethodProxy}. Chains of typed advices are bound to the generated
+ * proxy instead, see {@link TypedAdvices}.
  * 
  * @author sebastien.rozange
  * 
  */
-class MethodInterceptor implements net.sf.cglib.proxy.MethodInterceptor {
+class MethodInterceptor implements net.sf.cglib.proxy.MethodInterceptor, ProxyInterceptor {
 
-	private final SetMultimap<Method, Interceptor> interceptorsForMethod;
+	private final Map<Method, InterceptorChain> chains = Maps.newHashMap();
+	private InterceptorChain[] indexedChains;
 
 	MethodInterceptor(SetMultimap<Method, Interceptor> interceptorsForMethod) {
-		this.interceptorsForMethod = interceptorsForMethod;
+		this(interceptorsForMethod, null, null);
+	}
+
+	/**
+	 * @param interceptorsForMethod
+	 * @param metrics
+	 *            recorders of the context, null when metrics are disabled
+	 * @param asyncAdvices
+	 *            executor of async advices, may be null when no interceptor
+	 *            is async
+	 */
+	MethodInterceptor(SetMultimap<Method, Interceptor> interceptorsForMethod, InterceptionMetrics metrics, AsyncAdviceExecutor asyncAdvices) {
+		for (Method method : interceptorsForMethod.keySet()) {
+			List<Interceptor> chain = Lists.newArrayList();
+			List<Interceptor> async = Lists.newArrayList();
+			for (Interceptor interceptor : Interceptor.CHAIN_ORDERING.sortedCopy(interceptorsForMethod.get(method))) {
+				(interceptor.isAsync() ? async : chain).add(interceptor);
+			}
+			LatencyRecorder recorder = metrics != null ? metrics.recorder(method) : null;
+			chains.put(method, new InterceptorChain(method, chain.toArray(new Interceptor[chain.size()]), async.toArray(new Interceptor[async.size()]),
+					recorder, asyncAdvices));
+		}
+	}
+
+	/**
+	 * Indexes the chains by the index of their method in a generated proxy,
+	 * before the interceptor is bound to the proxy
+	 * 
+	 * @param methods
+	 *            methods overridden by the proxy, ordered by index
+	 */
+	void index(Method[] methods) {
+		InterceptorChain[] indexedChains = new InterceptorChain[methods.length];
+		for (int i = 0; i < methods.length; i++) {
+			indexedChains[i] = chains.get(methods[i]);
+		}
+		this.indexedChains = indexedChains;
+	}
+
+	/**
+	 * Binds the chains made of typed advices only to the given generated
+	 * proxy, once the interceptor is indexed. Chains timed or having async
+	 * advices are left to {@link #intercept(GeneratedProxy, int, Object[])}.
+	 * 
+	 * @param proxy
+	 * @param entryMethods
+	 *            typed entry points of the proxy, by index
+	 * @param superMethods
+	 *            methods of the proxy calling the methods of the managed
+	 *            class, by index
+	 */
+	void bind(GeneratedProxy proxy, Method[] entryMethods, Method[] superMethods) {
+		for (int i = 0; i < indexedChains.length; i++) {
+			InterceptorChain chain = indexedChains[i];
+			if (chain != null && chain.isTyped()) {
+				proxy.gini$setTypedChain(i, TypedAdvices.bind(entryMethods[i], chain.interceptors, proxy, superMethods[i]));
+			}
+		}
 	}
 
 	@Override
 	public Object intercept(Object bean, Method method, Object[] args, MethodProxy proxy) throws Throwable {
-		Set<Interceptor> interceptors = interceptorsForMethod.get(method);
+		InterceptorChain chain = chains.get(method);
+
+		if (chain == null) {
+			return proxy.invokeSuper(bean, args);
+		}
+		return intercept(chain, bean, proxy, -1, args);
+	}
+
+	@Override
+	public Object intercept(GeneratedProxy proxy, int method, Object[] args) {
+		InterceptorChain chain = indexedChains[method];
+		try {
+			if (chain == null) {
+				return proxy.gini$invokeSuper(method, args);
+			}
+			return intercept(chain, proxy, null, method, args);
+		} catch (Throwable t) {
+			throw Reflections.<RuntimeException> sneakyThrow(t);
+		}
+	}
+
+	/**
+	 * @param proxy
+	 *            cglib method proxy, null when the bean is a generated proxy
+	 * @param superMethod
+	 *            index of the method in the generated proxy
+	 */
+	private Object intercept(InterceptorChain chain, Object bean, MethodProxy proxy, int superMethod, Object[] args) throws Throwable {
+		LatencyRecorder recorder = chain.recorder;
+		if (recorder == null && chain.asyncInterceptors.length == 0) {
+			return chain.invoke(bean, proxy, superMethod, args);
+		}
+		long start = recorder != null ? System.nanoTime() : 0;
+		Object result = null;
+		Throwable error = null;
+		try {
+			result = chain.invoke(bean, proxy, superMethod, args);
+			return result;
+		} catch (Throwable t) {
+			error = t;
+			throw t;
+		} finally {
+			if (recorder != null) {
+				recorder.record(System.nanoTime() - start, error != null);
+			}
+			chain.submitAsyncAdvices(bean, args, result, error);
+		}
+	}
+
+	private static class InterceptorChain {
+
+		private final Method method;
+		private final Interceptor[] interceptors;
+		private final AdviceDispatcher[] dispatchers;
+		private final Interceptor[] asyncInterceptors;
+		private final LatencyRecorder recorder;
+		private final AsyncAdviceExecutor asyncAdvices;
+		private volatile Link bound;
+
+		InterceptorChain(Method method, Interceptor[] interceptors, Interceptor[] asyncInterceptors, LatencyRecorder recorder,
+				AsyncAdviceExecutor asyncAdvices) {
+			this.method = method;
+			this.interceptors = interceptors;
+			this.asyncInterceptors = asyncInterceptors;
+			this.recorder = recorder;
+			this.asyncAdvices = asyncAdvices;
+			this.dispatchers = new AdviceDispatcher[interceptors.length];
+			for (int i = 0; i < interceptors.length; i++) {
+				dispatchers[i] = AdviceDispatchers.forMethod(interceptors[i].getMethod());
+			}
+		}
+
+		Object invoke(Object bean, MethodProxy proxy, int superMethod, Object[] args) throws Throwable {
+			if (interceptors.length == 0) {
+				return proxy != null ? proxy.invokeSuper(bean, args) : ((GeneratedProxy) bean).gini$invokeSuper(superMethod, args);
+			}
+			return invoker(bean, proxy, superMethod).invokeMethod(args);
+		}
+
+		/**
+		 * @return true if the chain only calls typed advices
+		 */
+		boolean isTyped() {
+			if (interceptors.length == 0 || asyncInterceptors.length > 0 || recorder != null) {
+				return false;
+			}
+			for (Interceptor interceptor : interceptors) {
+				if (!TypedAdvices.isTyped(interceptor.getMethod())) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		void submitAsyncAdvices(Object bean, Object[] args, Object result, Throwable error) {
+			for (Interceptor interceptor : asyncInterceptors) {
+				asyncAdvices.submit(interceptor, bean, method, args, result, error);
+			}
+		}
+
+		/**
+		 * Returns the first link of the chain for the given bean, links are
+		 * only created when the chain is called by another bean than the one
+		 * it is bound to
+		 */
+		Link invoker(Object bean, MethodProxy proxy, int superMethod) {
+			Link link = bound;
+			if (link != null && link.bean == bean) {
+				return link;
+			}
+			link = link(bean, proxy, superMethod);
+			if (bound == null) {
+				bound = link;
+			}
+			return link;
+		}
+
+		private Link link(Object bean, MethodProxy proxy, int superMethod) {
+			MethodInvoker next = proxy != null ? new MethodInvokerImpl(proxy, bean) : new GeneratedMethodInvoker((GeneratedProxy) bean, superMethod);
+			Link link = null;
+			for (int i = interceptors.length - 1; i >= 0; i--) {
+				link = new Link(dispatchers[i], interceptors[i].getAdvice(), bean, method, next);
+				next = link;
+			}
+			return link;
+		}
+
+	}
+
+	/**
+	 * Calls an advice with the invoker of the next link of the chain
+	 */
+	private static class Link implements MethodInvoker {
+
+		private final AdviceDispatcher dispatcher;
+		private final Object advice;
+		private final Object bean;
+		private final Method method;
+		private final MethodInvoker next;
+
+		Link(AdviceDispatcher dispatcher, Object advice, Object bean, Method method, MethodInvoker next) {
+			this.dispatcher = dispatcher;
+			this.advice = advice;
+			this.bean = bean;
+			this.method = method;
+			this.next = next;
+		}
 
-		if (interceptors.size() > 0) {
-			Interceptor interceptor = interceptors.iterator().next();
-			Object[] adviceArguments = new Object[] { bean, method, args, new MethodInvokerImpl(proxy, bean) };
-			return interceptor.getMethod().invoke(interceptor.getAdvice(), adviceArguments);
+		@Override
+		public Object invokeMethod(Object[] args) {
+			return dispatcher.dispatch(advice, bean, method, args, next);
 		}
 
-		return proxy.invokeSuper(bean, args);
 	}
 
 }
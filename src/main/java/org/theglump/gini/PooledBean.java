@@ -0,0 +1,114 @@
+package org.theglump.gini;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.MethodProxy;
+
+import com.google.common.collect.MapMaker;
+
+/**
+ * Provider of a bean of {@link org.theglump.gini.annotation.Scope#POOLED}
+ * scope : idle beans are kept in a bounded pool, without locking. Borrowing
+ * from an empty pool creates a new bean, releasing to a full pool drops the
+ * bean.
+ * 
+ * Injected proxies, also returned when the bean is requested from the
+ * context, borrow a bean for the duration of each method call.
+ * 
+ */
+class PooledBean extends ScopedBean {
+
+	private final AtomicReferenceArray<Object> idleBeans;
+	/**
+	 * Beans borrowed through {@link #borrow()} and not released yet, weakly
+	 * held in case they are never given back
+	 */
+	private final Set<Object> borrowedBeans = Collections.newSetFromMap(new MapMaker().weakKeys().<Object, Boolean> makeMap());
+
+	PooledBean(Class<?> beanClass, int size, Initializer initializer) {
+		super(beanClass, initializer);
+		if (size < 1) {
+			throw new GiniException("Pool size of " + beanClass.getName() + " must be positive : " + size);
+		}
+		this.idleBeans = new AtomicReferenceArray<Object>(size);
+	}
+
+	@Override
+	Object get() {
+		return getInjectable(getBeanClass());
+	}
+
+	/**
+	 * @return an idle bean, or a new one if the pool is empty, to be given
+	 *         back with {@link #release(Object)}
+	 */
+	Object borrow() {
+		Object bean = take();
+		borrowedBeans.add(bean);
+		return bean;
+	}
+
+	/**
+	 * Gives back a bean returned by {@link #borrow()}, dropped if the pool is
+	 * full
+	 * 
+	 * @param bean
+	 */
+	void release(Object bean) {
+		if (!borrowedBeans.remove(bean)) {
+			throw new GiniException(bean + " was not borrowed from the pool of " + getBeanClass().getName());
+		}
+		give(bean);
+	}
+
+	private Object take() {
+		int first = firstSlot();
+		for (int i = 0; i < idleBeans.length(); i++) {
+			int slot = (first + i) % idleBeans.length();
+			Object bean = idleBeans.get(slot);
+			if (bean != null && idleBeans.compareAndSet(slot, bean, null)) {
+				return bean;
+			}
+		}
+		return newBean();
+	}
+
+	private void give(Object bean) {
+		int first = firstSlot();
+		for (int i = 0; i < idleBeans.length(); i++) {
+			int slot = (first + i) % idleBeans.length();
+			if (idleBeans.get(slot) == null && idleBeans.compareAndSet(slot, null, bean)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Threads start looking from different slots to limit contention
+	 */
+	private int firstSlot() {
+		return (int) (Thread.currentThread().getId() % idleBeans.length());
+	}
+
+	@Override
+	Callback callback() {
+		return new net.sf.cglib.proxy.MethodInterceptor() {
+
+			@Override
+			public Object intercept(Object proxy, Method method, Object[] args, MethodProxy methodProxy) throws Throwable {
+				Object bean = take();
+				try {
+					return methodProxy.invoke(bean, args);
+				} finally {
+					give(bean);
+				}
+			}
+
+		};
+	}
+
+}
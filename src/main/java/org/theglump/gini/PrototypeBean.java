@@ -0,0 +1,25 @@
+package org.theglump.gini;
+
+/**
+ * Provider of a bean of {@link org.theglump.gini.annotation.Scope#PROTOTYPE}
+ * scope : a new bean is created, and injected, each time it is requested or
+ * injected.
+ * 
+ */
+class PrototypeBean extends BeanProvider {
+
+	PrototypeBean(Class<?> beanClass, Initializer initializer) {
+		super(beanClass, initializer);
+	}
+
+	@Override
+	Object get() {
+		return newBean();
+	}
+
+	@Override
+	Object getInjectable(Class<?> fieldType) {
+		return newBean();
+	}
+
+}
@@ -0,0 +1,175 @@
+package org.theglump.gini;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import net.sf.cglib.core.ReflectUtils;
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.CallbackFilter;
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.MethodInterceptor;
+import net.sf.cglib.proxy.NoOp;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Process wide cache of proxy classes generated by cglib, shared by all
+ * contexts. Proxy classes are keyed by proxified class and intercepted
+ * methods, so that contexts created over the same packages only instantiate
+ * proxies and bind their callbacks.
+ * 
+ * The cache holds at most {@value #DEFAULT_MAXIMUM_SIZE} classes by default
+ * (see {@link #MAXIMUM_SIZE_PROPERTY}). Proxy classes are softly referenced
+ * and keys only weakly reference the proxified class, intercepted methods
+ * being kept as strings : the cache never holds a class loader strongly, so
+ * that the class loaders of unused proxies can be collected.
+ * 
+ */
+class ProxyClassCache {
+
+	/**
+	 * System property overriding the maximum number of cached proxy classes
+	 */
+	static final String MAXIMUM_SIZE_PROPERTY = "gini.proxyClassCache.maximumSize";
+
+	static final int DEFAULT_MAXIMUM_SIZE = 512;
+
+	private static final Class<?>[] CALLBACK_TYPES = { NoOp.class, MethodInterceptor.class };
+
+	private static final Cache<Key, Class<?>> PROXY_CLASSES = CacheBuilder.newBuilder()
+			.maximumSize(Integer.getInteger(MAXIMUM_SIZE_PROPERTY, DEFAULT_MAXIMUM_SIZE)).softValues().recordStats().build();
+
+	private ProxyClassCache() {
+	}
+
+	/**
+	 * Returns the proxy class of the given class, generating it if needed
+	 * 
+	 * @param clazz
+	 * @param interceptedMethods
+	 * @return proxy class
+	 */
+	static Class<?> getProxyClass(final Class<?> clazz, Set<Method> interceptedMethods) {
+		final Set<Method> methods = ImmutableSet.copyOf(interceptedMethods);
+		try {
+			return PROXY_CLASSES.get(new Key(clazz, methods), new Callable<Class<?>>() {
+
+				@Override
+				public Class<?> call() {
+					Enhancer enhancer = new Enhancer();
+					enhancer.setSuperclass(clazz);
+					enhancer.setUseCache(false);
+					enhancer.setCallbackTypes(CALLBACK_TYPES);
+					enhancer.setCallbackFilter(new InterceptedMethodsFilter(methods));
+					return enhancer.createClass();
+				}
+
+			});
+		} catch (ExecutionException e) {
+			throw new GiniException("Could not create proxy class for " + clazz.getName(), e.getCause());
+		}
+	}
+
+	/**
+	 * Returns whether the proxy class of the given class is cached, without
+	 * changing the statistics of the cache
+	 * 
+	 * @param clazz
+	 * @param interceptedMethods
+	 * @return true if the class would not be generated by
+	 *         {@link #getProxyClass}
+	 */
+	static boolean isCached(Class<?> clazz, Set<Method> interceptedMethods) {
+		return PROXY_CLASSES.asMap().containsKey(new Key(clazz, interceptedMethods));
+	}
+
+	/**
+	 * Instantiates a proxy class returned by {@link #getProxyClass}
+	 * 
+	 * @param proxyClass
+	 * @param methodInterceptor
+	 *            interceptor of intercepted methods
+	 * @param parameterTypes
+	 *            of the constructor of the proxified class to call
+	 * @param args
+	 * @return proxy
+	 */
+	static Object newInstance(Class<?> proxyClass, MethodInterceptor methodInterceptor, Class<?>[] parameterTypes, Object[] args) {
+		Enhancer.registerCallbacks(proxyClass, new Callback[] { NoOp.INSTANCE, methodInterceptor });
+		try {
+			return ReflectUtils.newInstance(proxyClass, parameterTypes, args);
+		} finally {
+			Enhancer.registerCallbacks(proxyClass, null);
+		}
+	}
+
+	static CacheStats stats() {
+		return PROXY_CLASSES.stats();
+	}
+
+	static long size() {
+		return PROXY_CLASSES.size();
+	}
+
+	private static class Key {
+
+		private final WeakReference<Class<?>> clazz;
+		private final Set<String> interceptedMethods;
+		private final int hashCode;
+
+		Key(Class<?> clazz, Set<Method> interceptedMethods) {
+			this.clazz = new WeakReference<Class<?>>(clazz);
+			ImmutableSet.Builder<String> methods = ImmutableSet.builder();
+			for (Method method : interceptedMethods) {
+				methods.add(method.toString());
+			}
+			this.interceptedMethods = methods.build();
+			this.hashCode = 31 * System.identityHashCode(clazz) + this.interceptedMethods.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			Class<?> clazz = this.clazz.get();
+			return clazz != null && clazz == other.clazz.get() && interceptedMethods.equals(other.interceptedMethods);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+	}
+
+	/**
+	 * Selects the {@link MethodInterceptor} callback for intercepted methods
+	 * and the {@link NoOp} one for the others
+	 */
+	private static class InterceptedMethodsFilter implements CallbackFilter {
+
+		private static final int NO_OP = 0;
+		private static final int INTERCEPT = 1;
+
+		private final Set<Method> interceptedMethods;
+
+		InterceptedMethodsFilter(Set<Method> interceptedMethods) {
+			this.interceptedMethods = interceptedMethods;
+		}
+
+		@Override
+		public int accept(Method method) {
+			return interceptedMethods.contains(method) ? INTERCEPT : NO_OP;
+		}
+
+	}
+
+}
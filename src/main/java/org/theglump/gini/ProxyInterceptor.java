@@ -0,0 +1,21 @@
+package org.theglump.gini;
+
+/**
+ * Interceptor called by the methods of a {@link GeneratedProxy}
+ *
+ */
+public interface ProxyInterceptor {
+
+	/**
+	 * Calls the advices of the given method, exceptions thrown by the method
+	 * are rethrown as is, whether they are checked or not
+	 *
+	 * @param proxy
+	 * @param method
+	 *            index of the method
+	 * @param args
+	 * @return method call result
+	 */
+	Object intercept(GeneratedProxy proxy, int method, Object[] args);
+
+}
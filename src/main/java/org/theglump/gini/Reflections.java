@@ -8,7 +8,9 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Set;
 
+import net.sf.cglib.proxy.Callback;
 import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.LazyLoader;
 import net.sf.cglib.proxy.MethodInterceptor;
 
 import com.google.common.base.Predicate;
@@ -31,9 +33,17 @@ public class Reflections {
 
 	};
 
+	protected static Field makeAccessible(Field field) {
+		field.setAccessible(true);
+		return field;
+	}
+
+	/**
+	 * Sets the value of a field, which must have been made accessible
+	 * beforehand (see {@link #makeAccessible(Field)})
+	 */
 	protected static void injectField(Object object, Field field, Object toInject) {
 		try {
-			field.setAccessible(true);
 			field.set(object, toInject);
 		} catch (IllegalArgumentException e) {
 			throw new GiniException(e);
@@ -52,12 +62,99 @@ public class Reflections {
 		}
 	}
 
+	/**
+	 * Rethrows unchecked exceptions as is and wraps checked ones in a
+	 * {@link GiniException}
+	 */
+	protected static RuntimeException propagate(Throwable throwable) {
+		if (throwable instanceof Error) {
+			throw (Error) throwable;
+		} else if (throwable instanceof RuntimeException) {
+			return (RuntimeException) throwable;
+		}
+		return new GiniException(throwable);
+	}
+
+	protected static Class<?> forName(String className, ClassLoader classLoader) {
+		try {
+			return Class.forName(className, false, classLoader);
+		} catch (ClassNotFoundException e) {
+			throw new GiniException(e);
+		}
+	}
+
+	protected static Field getDeclaredField(Class<?> clazz, String fieldName) {
+		try {
+			return clazz.getDeclaredField(fieldName);
+		} catch (NoSuchFieldException e) {
+			throw new GiniException(e);
+		}
+	}
+
+	protected static Method getDeclaredMethod(Class<?> clazz, String methodName, Class<?>... parameterTypes) {
+		try {
+			return clazz.getDeclaredMethod(methodName, parameterTypes);
+		} catch (NoSuchMethodException e) {
+			throw new GiniException(e);
+		}
+	}
+
+	/**
+	 * Creates a proxy calling the given interceptor for intercepted methods
+	 * only, other methods are directly handled by the proxified class. Proxy
+	 * classes are shared by all contexts, see {@link ProxyClassCache}.
+	 */
+	@SuppressWarnings("unchecked")
+	protected static <T> T createProxy(Class<T> clazz, MethodInterceptor methodInterceptor, Set<Method> interceptedMethods) {
+		return createProxy(clazz, methodInterceptor, interceptedMethods, new Class<?>[0], new Object[0]);
+	}
+
+	/**
+	 * Same as {@link #createProxy(Class, MethodInterceptor, Set)}, calling
+	 * the constructor of the given parameter types
+	 */
 	@SuppressWarnings("unchecked")
-	protected static <T> T createProxy(Class<T> clazz, MethodInterceptor methodInterceptor) {
+	protected static <T> T createProxy(Class<T> clazz, MethodInterceptor methodInterceptor, Set<Method> interceptedMethods, Class<?>[] parameterTypes,
+			Object[] args) {
+		return (T) ProxyClassCache.newInstance(ProxyClassCache.getProxyClass(clazz, interceptedMethods), methodInterceptor, parameterTypes, args);
+	}
+
+	/**
+	 * Creates a proxy implementing the given interfaces, the target of calls
+	 * being provided by the given loader on the first call
+	 */
+	protected static Object createLazyProxy(Class<?>[] interfaces, LazyLoader lazyLoader) {
 		Enhancer enhancer = new Enhancer();
-		enhancer.setSuperclass(clazz);
-		enhancer.setCallback(methodInterceptor);
-		return (T) enhancer.create();
+		enhancer.setInterfaces(interfaces);
+		enhancer.setCallback(lazyLoader);
+		return enhancer.create();
+	}
+
+	/**
+	 * Creates a proxy of the given class, or implementing the given interfaces
+	 * when no class is given, calls being handled by the given callback
+	 */
+	protected static Object createDelegatingProxy(Class<?> superclass, Class<?>[] interfaces, Callback callback) {
+		Enhancer enhancer = new Enhancer();
+		if (superclass != null) {
+			enhancer.setSuperclass(superclass);
+		} else {
+			enhancer.setInterfaces(interfaces);
+		}
+		enhancer.setCallback(callback);
+		return enhancer.create();
+	}
+
+	/**
+	 * Creates a proxy of the given class, calling the constructor having the
+	 * given parameter types with the given arguments, calls being handled by
+	 * the given callback
+	 */
+	protected static Object createDelegatingProxy(Class<?> superclass, Callback callback, Class<?>[] parameterTypes, Object[] args) {
+		Enhancer enhancer = new Enhancer();
+		enhancer.setSuperclass(superclass);
+		enhancer.setCallback(callback);
+		return enhancer.create(parameterTypes, args);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -71,7 +168,19 @@ public class Reflections {
 	}
 
 	protected static Class<?> getProxifiedClass(Class<?> clazz) {
-		return clazz.getName().contains("CGLIB") ? clazz.getSuperclass() : clazz;
+		return clazz.getName().contains("CGLIB") || GeneratedProxy.class.isAssignableFrom(clazz) ? clazz.getSuperclass() : clazz;
+	}
+
+	/**
+	 * Throws the given throwable, even if it is a checked exception not
+	 * declared by the caller
+	 *
+	 * @return never returns, the return type allows callers to write
+	 *         <code>throw sneakyThrow(t)</code>
+	 */
+	@SuppressWarnings("unchecked")
+	protected static <T extends Throwable> RuntimeException sneakyThrow(Throwable throwable) throws T {
+		throw (T) throwable;
 	}
 
 }
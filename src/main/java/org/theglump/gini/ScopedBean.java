@@ -0,0 +1,47 @@
+package org.theglump.gini;
+
+import net.sf.cglib.proxy.Callback;
+
+/**
+ * Provider of beans having several instances, one per thread or in a pool.
+ * 
+ * Injection points receive a proxy resolving the instance to call on each
+ * method call : a proxy implementing the interfaces of the bean for fields
+ * typed by an interface, a subclass of the bean class otherwise (the
+ * constructor of the bean class is then called once for the proxy, with
+ * its resolved arguments).
+ * 
+ */
+abstract class ScopedBean extends BeanProvider {
+
+	private volatile Object interfaceProxy;
+	private volatile Object classProxy;
+
+	ScopedBean(Class<?> beanClass, Initializer initializer) {
+		super(beanClass, initializer);
+	}
+
+	@Override
+	Object getInjectable(Class<?> fieldType) {
+		if (fieldType.isInterface()) {
+			Object proxy = interfaceProxy;
+			if (proxy == null) {
+				proxy = Reflections.createDelegatingProxy(null, getInterfaces(), callback());
+				interfaceProxy = proxy;
+			}
+			return proxy;
+		}
+		Object proxy = classProxy;
+		if (proxy == null) {
+			proxy = getInitializer().createClassProxy(getBeanClass(), callback());
+			classProxy = proxy;
+		}
+		return proxy;
+	}
+
+	/**
+	 * @return the callback of the proxies, resolving the instance to call
+	 */
+	abstract Callback callback();
+
+}
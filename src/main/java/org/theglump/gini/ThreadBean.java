@@ -0,0 +1,44 @@
+package org.theglump.gini;
+
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.Dispatcher;
+
+/**
+ * Provider of a bean of {@link org.theglump.gini.annotation.Scope#THREAD}
+ * scope : each thread gets its own bean, cached in a {@link ThreadLocal}.
+ * Injected proxies call the bean of the calling thread.
+ * 
+ */
+class ThreadBean extends ScopedBean {
+
+	private final ThreadLocal<Object> beans = new ThreadLocal<Object>() {
+
+		@Override
+		protected Object initialValue() {
+			return newBean();
+		}
+
+	};
+
+	ThreadBean(Class<?> beanClass, Initializer initializer) {
+		super(beanClass, initializer);
+	}
+
+	@Override
+	Object get() {
+		return beans.get();
+	}
+
+	@Override
+	Callback callback() {
+		return new Dispatcher() {
+
+			@Override
+			public Object loadObject() {
+				return beans.get();
+			}
+
+		};
+	}
+
+}
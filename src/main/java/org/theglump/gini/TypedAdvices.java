@@ -0,0 +1,304 @@
+package org.theglump.gini;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.cglib.core.AbstractClassGenerator;
+import net.sf.cglib.core.ClassEmitter;
+import net.sf.cglib.core.CodeEmitter;
+import net.sf.cglib.core.Constants;
+import net.sf.cglib.core.EmitUtils;
+import net.sf.cglib.core.ReflectUtils;
+import net.sf.cglib.core.Signature;
+import net.sf.cglib.core.TypeUtils;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Type;
+import org.theglump.gini.annotation.Around;
+
+/**
+ * Calls typed advices, whose signature is :
+ *
+ * <pre>
+ * R method(P proceed, T1 arg1, ..., Tn argn)
+ * </pre>
+ *
+ * T1 ... Tn and R being the parameter and return types of the advised
+ * methods, and P a public interface declaring a single method taking T1 ...
+ * Tn and returning R, called by the advice to proceed with the call.
+ *
+ * When every advice of a method of a {@link GeneratedProxy} is typed, the
+ * chain is bound when the proxy is created : the proxy calls the first advice
+ * through its typed entry point, each advice calls the next one through the
+ * implementation of its proceed interface generated with cglib, and the last
+ * one calls the method of the managed class, without boxing arguments. Other
+ * typed advices are called through an {@link AdviceDispatcher} unboxing the
+ * arguments of the call and boxing those given to proceed.
+ *
+ */
+class TypedAdvices {
+
+	private static final Signature LINK_CONSTRUCTOR = TypeUtils.parseConstructor(new Type[] { Constants.TYPE_OBJECT, Constants.TYPE_OBJECT });
+	private static final Class<?>[] LINK_CONSTRUCTOR_TYPES = new Class<?>[] { Object.class, Object.class };
+	private static final Class<?>[] UNTYPED_PARAMETER_TYPES = new Class<?>[] { Object.class, Method.class, Object[].class, MethodInvoker.class };
+	private static final Method INVOKE_METHOD = Reflections.getDeclaredMethod(MethodInvoker.class, "invokeMethod", Object[].class);
+
+	private TypedAdvices() {
+	}
+
+	/**
+	 * @param adviceMethod
+	 * @return true if the given advice method is an {@link Around} method not
+	 *         taking the arguments of the call as an array
+	 */
+	static boolean isTyped(Method adviceMethod) {
+		return adviceMethod.isAnnotationPresent(Around.class) && !Arrays.equals(adviceMethod.getParameterTypes(), UNTYPED_PARAMETER_TYPES);
+	}
+
+	/**
+	 * Returns the method of the proceed interface of the given typed advice
+	 * method
+	 *
+	 * @param adviceMethod
+	 * @return proceed method
+	 * @throws GiniException
+	 *             if the signature of the advice method is not valid
+	 */
+	static Method getProceedMethod(Method adviceMethod) {
+		Class<?>[] parameterTypes = adviceMethod.getParameterTypes();
+		if (!Modifier.isPublic(adviceMethod.getModifiers()) || !Modifier.isPublic(adviceMethod.getDeclaringClass().getModifiers())) {
+			throw new GiniException("Typed advice " + adviceMethod + " must be a public method of a public class");
+		}
+		if (parameterTypes.length == 0 || !parameterTypes[0].isInterface() || !Modifier.isPublic(parameterTypes[0].getModifiers())
+				|| parameterTypes[0].getMethods().length != 1) {
+			throw new GiniException("First parameter of typed advice " + adviceMethod + " must be a public interface declaring a single method");
+		}
+		Method proceedMethod = parameterTypes[0].getMethods()[0];
+		if (!accepts(adviceMethod, proceedMethod)) {
+			throw new GiniException("Method " + proceedMethod + " must have the parameter and return types of typed advice " + adviceMethod);
+		}
+		return proceedMethod;
+	}
+
+	/**
+	 * @param adviceMethod
+	 * @param method
+	 * @return true if the given method has the parameter and return types of
+	 *         the given typed advice method
+	 */
+	static boolean accepts(Method adviceMethod, Method method) {
+		Class<?>[] parameterTypes = adviceMethod.getParameterTypes();
+		return adviceMethod.getReturnType() == method.getReturnType()
+				&& Arrays.equals(Arrays.copyOfRange(parameterTypes, 1, parameterTypes.length), method.getParameterTypes());
+	}
+
+	/**
+	 * @param adviceMethod
+	 * @return a dispatcher calling the given typed advice method with the
+	 *         unboxed arguments of the call
+	 */
+	static AdviceDispatcher dispatcher(Method adviceMethod) {
+		Method proceedMethod = getProceedMethod(adviceMethod);
+		Class<?> boxedLink = new LinkGenerator(proceedMethod, INVOKE_METHOD, adviceMethod.getDeclaringClass().getClassLoader()).create();
+		return new DispatcherGenerator(adviceMethod, boxedLink).create();
+	}
+
+	/**
+	 * Binds the given typed interceptors to a generated proxy
+	 *
+	 * @param entryMethod
+	 *            typed entry point of the method in the proxy class
+	 * @param interceptors
+	 *            typed interceptors of the method, in chain order
+	 * @param proxy
+	 * @param superMethod
+	 *            method of the proxy class calling the method of the managed
+	 *            class
+	 * @return the first link of the chain, implementing the interface of the
+	 *         entry point
+	 */
+	static Object bind(Method entryMethod, Interceptor[] interceptors, GeneratedProxy proxy, Method superMethod) {
+		ClassLoader classLoader = proxy.getClass().getClassLoader();
+		Method[] proceedMethods = new Method[interceptors.length];
+		for (int i = 0; i < interceptors.length; i++) {
+			proceedMethods[i] = getProceedMethod(interceptors[i].getMethod());
+		}
+		Object next = newLink(new LinkGenerator(proceedMethods[interceptors.length - 1], superMethod, classLoader).create(), proxy, null);
+		for (int i = interceptors.length - 1; i >= 0; i--) {
+			Method implemented = i > 0 ? proceedMethods[i - 1] : entryMethod;
+			Class<?> link = new LinkGenerator(implemented, interceptors[i].getMethod(), classLoader).create();
+			next = newLink(link, interceptors[i].getAdvice(), next);
+		}
+		return next;
+	}
+
+	private static Object newLink(Class<?> linkClass, Object target, Object next) {
+		return ReflectUtils.newInstance(linkClass, LINK_CONSTRUCTOR_TYPES, new Object[] { target, next });
+	}
+
+	/**
+	 * Generates a class implementing a single method interface by calling a
+	 * method of its target :
+	 * <ul>
+	 * <li>an advice method, given the next link and the arguments</li>
+	 * <li>a method of a generated proxy, given the arguments</li>
+	 * <li>{@link MethodInvoker#invokeMethod(Object[])}, given the boxed
+	 * arguments</li>
+	 * </ul>
+	 */
+	private static class LinkGenerator extends AbstractClassGenerator {
+
+		private static final Source SOURCE = new Source(TypedAdvices.class.getName() + "$Link");
+
+		private final Method implemented;
+		private final Method target;
+		private final ClassLoader classLoader;
+
+		LinkGenerator(Method implemented, Method target, ClassLoader classLoader) {
+			super(SOURCE);
+			this.implemented = implemented;
+			this.target = target;
+			this.classLoader = classLoader;
+			setNamePrefix(implemented.getDeclaringClass().getName());
+		}
+
+		Class<?> create() {
+			List<Method> key = Arrays.asList(implemented, target);
+			return (Class<?>) super.create(key);
+		}
+
+		@Override
+		public void generateClass(ClassVisitor v) {
+			Type targetType = Type.getType(target.getDeclaringClass());
+			ClassEmitter ce = new ClassEmitter(v);
+			ce.begin_class(Constants.V1_2, Constants.ACC_PUBLIC, getClassName(), Constants.TYPE_OBJECT,
+					new Type[] { Type.getType(implemented.getDeclaringClass()) }, Constants.SOURCE_FILE);
+			ce.declare_field(Constants.ACC_PRIVATE | Constants.ACC_FINAL, "target", Constants.TYPE_OBJECT, null);
+			ce.declare_field(Constants.ACC_PRIVATE | Constants.ACC_FINAL, "next", Constants.TYPE_OBJECT, null);
+
+			CodeEmitter e = ce.begin_method(Constants.ACC_PUBLIC, LINK_CONSTRUCTOR, null);
+			e.load_this();
+			e.super_invoke_constructor();
+			e.load_this();
+			e.load_arg(0);
+			e.putfield("target");
+			e.load_this();
+			e.load_arg(1);
+			e.putfield("next");
+			e.return_value();
+			e.end_method();
+
+			e = ce.begin_method(Constants.ACC_PUBLIC, ReflectUtils.getSignature(implemented), null);
+			e.load_this();
+			e.getfield("target");
+			e.checkcast(targetType);
+			if (target.equals(INVOKE_METHOD)) {
+				e.create_arg_array();
+				e.invoke(ReflectUtils.getMethodInfo(target));
+				if (implemented.getReturnType() == void.class) {
+					e.pop();
+				} else {
+					e.unbox_or_zero(Type.getType(implemented.getReturnType()));
+				}
+			} else {
+				if (target.getParameterTypes().length > implemented.getParameterTypes().length) {
+					e.load_this();
+					e.getfield("next");
+					e.checkcast(Type.getType(target.getParameterTypes()[0]));
+				}
+				e.load_args();
+				e.invoke(ReflectUtils.getMethodInfo(target));
+			}
+			e.return_value();
+			e.end_method();
+			ce.end_class();
+		}
+
+		@Override
+		protected ClassLoader getDefaultClassLoader() {
+			return classLoader;
+		}
+
+		@Override
+		protected Object firstInstance(@SuppressWarnings("rawtypes") Class type) {
+			return type;
+		}
+
+		@Override
+		protected Object nextInstance(Object instance) {
+			return instance;
+		}
+
+	}
+
+	/**
+	 * Generates an {@link AdviceDispatcher} calling a typed advice method with
+	 * a new boxing link to the next invoker and the unboxed arguments
+	 */
+	private static class DispatcherGenerator extends AbstractClassGenerator {
+
+		private static final Source SOURCE = new Source(TypedAdvices.class.getName() + "$Dispatcher");
+		private static final Type DISPATCHER = Type.getType(AdviceDispatcher.class);
+
+		private final Method adviceMethod;
+		private final Class<?> boxedLink;
+
+		DispatcherGenerator(Method adviceMethod, Class<?> boxedLink) {
+			super(SOURCE);
+			this.adviceMethod = adviceMethod;
+			this.boxedLink = boxedLink;
+			setNamePrefix(adviceMethod.getDeclaringClass().getName());
+		}
+
+		AdviceDispatcher create() {
+			return (AdviceDispatcher) super.create(adviceMethod);
+		}
+
+		@Override
+		public void generateClass(ClassVisitor v) {
+			Type linkType = Type.getType(boxedLink);
+			Class<?>[] parameterTypes = adviceMethod.getParameterTypes();
+			ClassEmitter ce = new ClassEmitter(v);
+			ce.begin_class(Constants.V1_2, Constants.ACC_PUBLIC, getClassName(), Constants.TYPE_OBJECT, new Type[] { DISPATCHER }, Constants.SOURCE_FILE);
+			EmitUtils.null_constructor(ce);
+			CodeEmitter e = ce.begin_method(Constants.ACC_PUBLIC, ReflectUtils.getSignature(AdviceDispatcher.class.getMethods()[0]), null);
+			e.load_arg(0);
+			e.checkcast(Type.getType(adviceMethod.getDeclaringClass()));
+			e.new_instance(linkType);
+			e.dup();
+			e.load_arg(4);
+			e.aconst_null();
+			e.invoke_constructor(linkType, LINK_CONSTRUCTOR);
+			for (int i = 1; i < parameterTypes.length; i++) {
+				e.load_arg(3);
+				e.aaload(i - 1);
+				e.unbox_or_zero(Type.getType(parameterTypes[i]));
+			}
+			e.invoke(ReflectUtils.getMethodInfo(adviceMethod));
+			// pushes null for void methods
+			e.box(Type.getType(adviceMethod.getReturnType()));
+			e.return_value();
+			e.end_method();
+			ce.end_class();
+		}
+
+		@Override
+		protected ClassLoader getDefaultClassLoader() {
+			return adviceMethod.getDeclaringClass().getClassLoader();
+		}
+
+		@Override
+		protected Object firstInstance(@SuppressWarnings("rawtypes") Class type) {
+			return ReflectUtils.newInstance(type);
+		}
+
+		@Override
+		protected Object nextInstance(Object instance) {
+			return instance;
+		}
+
+	}
+
+}
@@ -0,0 +1,63 @@
+package org.theglump.gini.annotation;
+
+import java.lang.annotation.Annotation;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Advice method called asynchronously after each call of the methods matched
+ * by its joinpoint or annotation, so that side effects (audit,
+ * notifications...) do not add to the latency of the call. Its signature must
+ * be :
+ * 
+ * <pre>
+ * void method(Object bean, Method method, Object[] args, Object result, Throwable error)
+ * </pre>
+ * 
+ * result being null when the call threw error. Advices are run by the
+ * executor of the context, see <code>Gini.Builder#asyncExecutor</code>.
+ * 
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AfterAsync {
+
+	/**
+	 * What to do when the queue of the executor is full
+	 */
+	public enum Overflow {
+
+		/**
+		 * The caller waits for a pending advice to complete
+		 */
+		BLOCK,
+
+		/**
+		 * The advice is not called, the caller does not wait
+		 */
+		DROP
+
+	}
+
+	/**
+	 * Regexp matching method pathes, see {@link Around#joinpoint()}
+	 * 
+	 * @return joinpoint
+	 */
+	public String joinpoint() default "";
+
+	/**
+	 * Annotation of the advised methods, see {@link Around#annotatedWith()}
+	 * 
+	 * @return annotation, {@link Annotation} for none
+	 */
+	public Class<? extends Annotation> annotatedWith() default Annotation.class;
+
+	/**
+	 * @return what to do when the queue of the executor is full
+	 */
+	public Overflow overflow() default Overflow.BLOCK;
+
+}
@@ -1,19 +1,62 @@
 package org.theglump.gini.annotation;
 
+import java.lang.annotation.Annotation;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Advice method called instead of the methods matched by its joinpoint and
+ * carrying the annotation given by {@link #annotatedWith()}. Its
+ * signature is either :
+ * 
+ * <pre>
+ * Object method(Object bean, Method method, Object[] args, MethodInvoker methodInvoker)
+ * </pre>
+ * 
+ * or, for a typed advice intercepting the methods taking T1 ... Tn and
+ * returning R :
+ * 
+ * <pre>
+ * R method(P proceed, T1 arg1, ..., Tn argn)
+ * </pre>
+ * 
+ * P being a public interface declaring a single method taking T1 ... Tn and
+ * returning R, called to proceed with the call.
+ * 
+ */
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Around {
 
 	/**
-	 * Regexp matching method pathes of form : .*IStep.getStr.*
+	 * Regexp matching method pathes of form : .*IStep.getStr.* ; all methods
+	 * annotated with {@link #annotatedWith()} when empty
 	 * 
 	 * @return joinpoint
 	 */
-	public String joinpoint();
+	public String joinpoint() default "";
+
+	/**
+	 * Annotation of the intercepted methods, or of the managed classes
+	 * declaring them, which must be retained at runtime. Annotated methods are
+	 * indexed once per context : matching them costs nothing for methods
+	 * without annotation. When a joinpoint is also given, only the annotated
+	 * methods matching it are intercepted.
+	 * 
+	 * @return annotation, {@link Annotation} for none
+	 */
+	public Class<? extends Annotation> annotatedWith() default Annotation.class;
+
+	/**
+	 * Position of the advice in the interceptor chain when several advices
+	 * intercept the same method : lowest orders are called first and wrap the
+	 * others. Advices having the same order are sorted by class and method
+	 * name.
+	 * 
+	 * @return order
+	 */
+	public int order() default 0;
 
 }
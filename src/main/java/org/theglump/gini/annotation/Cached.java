@@ -0,0 +1,54 @@
+package org.theglump.gini.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the results of a public method of a managed bean, by arguments. The
+ * method must be pure : its result must only depend on its arguments, beans
+ * of a class sharing the cache of each of its methods whatever their scope.
+ *
+ * Arguments are compared with <code>equals</code>, arrays by content. Several
+ * threads calling the method with the same arguments while the result is not
+ * cached wait for a single call. Exceptions are not cached.
+ *
+ * Statistics of the caches are given by <code>Gini#getCacheStats()</code>.
+ *
+ * Contexts reject cached methods returning void, and the annotation processor
+ * rejects cached methods which are not public or are static.
+ *
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cached {
+
+	/**
+	 * @return maximum number of results kept, least recently used ones being
+	 *         evicted first
+	 */
+	public long maximumSize() default 1000;
+
+	/**
+	 * @return duration after which a result is evicted, 0 for results to be
+	 *         kept until evicted by size
+	 */
+	public long expireAfterWrite() default 0;
+
+	/**
+	 * @return unit of {@link #expireAfterWrite()}
+	 */
+	public TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+	/**
+	 * Position of the cache in the interceptor chain of the method, see
+	 * {@link Around#order()}. By default the cache wraps every advice, so
+	 * that a hit does not call them.
+	 *
+	 * @return order
+	 */
+	public int order() default Integer.MIN_VALUE;
+
+}
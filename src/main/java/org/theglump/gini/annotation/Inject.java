@@ -5,7 +5,12 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
-@Target(ElementType.FIELD)
+/**
+ * Marks a field to inject, or the constructor used to create a managed bean.
+ * Fields are injected by type then by name, constructor parameters by type
+ * only.
+ */
+@Target({ ElementType.FIELD, ElementType.CONSTRUCTOR })
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Inject {
 
@@ -9,4 +9,31 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Managed {
 
+	/**
+	 * A lazy bean is created, and injected, the first time it is requested
+	 * from the context or used by another bean. Until then, fields typed by
+	 * one of its interfaces receive a holder creating it on its first method
+	 * call, fields typed by its class get it created right away.
+	 * 
+	 * @return true if the bean is lazy
+	 */
+	public boolean lazy() default false;
+
+	/**
+	 * Beans of other scopes than {@link Scope#SINGLETON} are created when
+	 * needed, they cannot be lazy. Fields injected with a bean of
+	 * {@link Scope#THREAD} or {@link Scope#POOLED} scope receive a proxy
+	 * calling the bean of the current thread, or a bean borrowed from the
+	 * pool for the duration of the call.
+	 * 
+	 * @return the scope of the bean
+	 */
+	public Scope scope() default Scope.SINGLETON;
+
+	/**
+	 * @return the maximum number of idle beans kept by the pool of a bean of
+	 *         {@link Scope#POOLED} scope
+	 */
+	public int poolSize() default 16;
+
 }
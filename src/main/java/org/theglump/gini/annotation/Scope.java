@@ -0,0 +1,29 @@
+package org.theglump.gini.annotation;
+
+/**
+ * Scope of a managed bean, see {@link Managed#scope()}
+ */
+public enum Scope {
+
+	/**
+	 * One bean per context
+	 */
+	SINGLETON,
+
+	/**
+	 * A new bean each time the bean is requested or injected
+	 */
+	PROTOTYPE,
+
+	/**
+	 * One bean per thread
+	 */
+	THREAD,
+
+	/**
+	 * Beans kept in a bounded pool, borrowed for the duration of each method
+	 * call
+	 */
+	POOLED
+
+}
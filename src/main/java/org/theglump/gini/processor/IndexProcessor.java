@@ -0,0 +1,353 @@
+package org.theglump.gini.processor;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import org.theglump.gini.GeneratedProxy;
+import org.theglump.gini.annotation.Advice;
+import org.theglump.gini.annotation.AfterAsync;
+import org.theglump.gini.annotation.Around;
+import org.theglump.gini.annotation.Cached;
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.CharStreams;
+
+/**
+ * Annotation processor writing an index of managed beans, advices and
+ * injected fields to {@value #INDEX_RESOURCE}.
+ * 
+ * When the index is found on the classpath, contexts are initialized without
+ * scanning the classpath.
+ * 
+ * Each line of the index is a tab separated entry of one of these forms :
+ * 
+ * <pre>
+ * managed  className annotatedMethodNames
+ * advice   className
+ * inject   className fieldName
+ * around   className methodName joinpoint
+ * afterAsync className methodName joinpoint
+ * proxy    className proxyClassName
+ * </pre>
+ * 
+ * The annotated method names are the comma separated names of the public
+ * methods of the managed class carrying a runtime annotation : only these
+ * methods are looked up when annotation pointcuts are matched. The joinpoint
+ * is empty for advices only matching annotated methods, whose annotation is
+ * read from the advice method at runtime.
+ * 
+ * The processor also writes a {@link GeneratedProxy} for each managed class
+ * having public methods matched by the joinpoints, or carrying the
+ * annotations, of the advices compiled with it, see {@link ProxyWriter}.
+ * Contexts use these proxies instead of generating proxy classes with
+ * cglib. Proxies are not generated when the {@value #PROXIES_OPTION} option
+ * is <code>false</code>.
+ * 
+ */
+@SupportedAnnotationTypes({ "org.theglump.gini.annotation.Managed", "org.theglump.gini.annotation.Advice", "org.theglump.gini.annotation.Around",
+		"org.theglump.gini.annotation.AfterAsync", "org.theglump.gini.annotation.Inject", "org.theglump.gini.annotation.Cached" })
+@SupportedOptions(IndexProcessor.PROXIES_OPTION)
+public class IndexProcessor extends AbstractProcessor {
+
+	public static final String INDEX_RESOURCE = "META-INF/gini/index";
+
+	public static final String MANAGED = "managed";
+	public static final String ADVICE = "advice";
+	public static final String INJECT = "inject";
+	public static final String AROUND = "around";
+	public static final String AFTER_ASYNC = "afterAsync";
+	public static final String PROXY = "proxy";
+
+	public static final String PROXIES_OPTION = "gini.proxies";
+	public static final String PROXY_SUFFIX = "$$GiniProxy";
+
+	private final Set<String> entries = Sets.newTreeSet();
+	/**
+	 * Binary names of the types compiled in this run, whose entries in a
+	 * previous index are replaced
+	 */
+	private final Set<String> compiledTypes = Sets.newHashSet();
+	private final Set<Pattern> joinpoints = Sets.newLinkedHashSet();
+	private final Set<String> pointcutAnnotations = Sets.newLinkedHashSet();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			writeIndex();
+			return false;
+		}
+		Set<TypeElement> managedTypes = Sets.newLinkedHashSet();
+		for (Element element : roundEnv.getElementsAnnotatedWith(Managed.class)) {
+			managedTypes.add((TypeElement) element);
+		}
+		for (TypeElement type : getTypes(roundEnv.getRootElements())) {
+			compiledTypes.add(binaryName(type));
+			if (type.getKind() == ElementKind.CLASS && hasManagedSuperType(type.asType()) && !isGeneratedProxy(type)) {
+				managedTypes.add(type);
+			}
+		}
+		for (TypeElement managedType : managedTypes) {
+			entries.add(entry(MANAGED, binaryName(managedType), Joiner.on(',').join(getAnnotatedMethodNames(managedType))));
+		}
+		for (Element element : roundEnv.getElementsAnnotatedWith(Advice.class)) {
+			entries.add(entry(ADVICE, binaryName(element)));
+		}
+		for (Element element : roundEnv.getElementsAnnotatedWith(Inject.class)) {
+			if (element.getKind() != ElementKind.FIELD) {
+				// injection constructors are looked up when beans are created
+				continue;
+			}
+			entries.add(entry(INJECT, binaryName(element.getEnclosingElement()), element.getSimpleName().toString()));
+		}
+		for (Element element : roundEnv.getElementsAnnotatedWith(Around.class)) {
+			Around around = ((ExecutableElement) element).getAnnotation(Around.class);
+			entries.add(entry(AROUND, binaryName(element.getEnclosingElement()), element.getSimpleName().toString(), around.joinpoint()));
+			addPointcut(element, around.joinpoint(), getAnnotatedWith(element, Around.class));
+		}
+		for (Element element : roundEnv.getElementsAnnotatedWith(AfterAsync.class)) {
+			AfterAsync afterAsync = ((ExecutableElement) element).getAnnotation(AfterAsync.class);
+			entries.add(entry(AFTER_ASYNC, binaryName(element.getEnclosingElement()), element.getSimpleName().toString(), afterAsync.joinpoint()));
+			addPointcut(element, afterAsync.joinpoint(), getAnnotatedWith(element, AfterAsync.class));
+		}
+		for (Element element : roundEnv.getElementsAnnotatedWith(Cached.class)) {
+			if (!element.getModifiers().contains(Modifier.PUBLIC) || element.getModifiers().contains(Modifier.STATIC)) {
+				// only public methods of beans are intercepted, the cache would be ignored
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@Cached methods must be public and not static", element);
+			}
+		}
+		if (!"false".equals(processingEnv.getOptions().get(PROXIES_OPTION))) {
+			writeProxies(managedTypes);
+		}
+		return false;
+	}
+
+	/**
+	 * @return the given types and the types nested in them, the runtime scan
+	 *         finding nested subclasses of managed types as well
+	 */
+	private static List<TypeElement> getTypes(Collection<? extends Element> elements) {
+		List<TypeElement> types = Lists.newArrayList();
+		for (TypeElement type : ElementFilter.typesIn(elements)) {
+			types.add(type);
+			types.addAll(getTypes(type.getEnclosedElements()));
+		}
+		return types;
+	}
+
+	/**
+	 * Methods carrying the annotation of a pointcut are all overridden by
+	 * proxies, whether they match its joinpoint or not
+	 */
+	private void addPointcut(Element element, String joinpoint, String annotation) {
+		if (annotation != null) {
+			pointcutAnnotations.add(annotation);
+		} else if (!joinpoint.isEmpty()) {
+			addJoinpoint(element, joinpoint);
+		}
+	}
+
+	/**
+	 * @return the annotation given to the annotatedWith attribute of the given
+	 *         pointcut of the element, null if there is none
+	 */
+	private String getAnnotatedWith(Element element, Class<? extends Annotation> pointcut) {
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			if (!((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(pointcut.getName())) {
+				continue;
+			}
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : processingEnv.getElementUtils()
+					.getElementValuesWithDefaults(mirror).entrySet()) {
+				if (value.getKey().getSimpleName().contentEquals("annotatedWith")) {
+					return annotationName((TypeMirror) value.getValue().getValue());
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the names of the public methods of the given class carrying an
+	 *         annotation retained at runtime
+	 */
+	private Set<String> getAnnotatedMethodNames(TypeElement type) {
+		Set<String> names = Sets.newTreeSet();
+		for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+			if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+				continue;
+			}
+			for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+				Retention retention = mirror.getAnnotationType().asElement().getAnnotation(Retention.class);
+				if (retention != null && retention.value() == RetentionPolicy.RUNTIME) {
+					names.add(method.getSimpleName().toString());
+				}
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * @return the qualified name of the given annotation type, null for
+	 *         {@link Annotation} which stands for no annotation
+	 */
+	private String annotationName(TypeMirror type) {
+		Element element = processingEnv.getTypeUtils().asElement(type);
+		if (element == null || element.getKind() != ElementKind.ANNOTATION_TYPE) {
+			return null;
+		}
+		return ((TypeElement) element).getQualifiedName().toString();
+	}
+
+	private void addJoinpoint(Element element, String joinpoint) {
+		try {
+			joinpoints.add(Pattern.compile(joinpoint));
+		} catch (PatternSyntaxException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Invalid joinpoint : " + e.getMessage(), element);
+		}
+	}
+
+	/**
+	 * Proxies are written in the round where their class is found, with the
+	 * joinpoints and annotations found so far : proxies are compiled in the
+	 * next round
+	 */
+	private void writeProxies(Collection<TypeElement> managedTypes) {
+		ProxyWriter writer = new ProxyWriter(processingEnv);
+		for (TypeElement managedType : managedTypes) {
+			try {
+				String proxy = writer.write(managedType, joinpoints, pointcutAnnotations);
+				if (proxy != null) {
+					entries.add(entry(PROXY, binaryName(managedType), proxy));
+				}
+			} catch (IOException e) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Could not write proxy : " + e.getMessage(), managedType);
+			}
+		}
+	}
+
+	private boolean isGeneratedProxy(Element element) {
+		TypeElement generatedProxy = processingEnv.getElementUtils().getTypeElement(GeneratedProxy.class.getName());
+		return processingEnv.getTypeUtils().isAssignable(element.asType(), generatedProxy.asType());
+	}
+
+	private boolean hasManagedSuperType(TypeMirror type) {
+		for (TypeMirror superType : processingEnv.getTypeUtils().directSupertypes(type)) {
+			Element superElement = ((DeclaredType) superType).asElement();
+			if (superElement.getAnnotation(Managed.class) != null || hasManagedSuperType(superType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private String binaryName(Element element) {
+		return processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString();
+	}
+
+	private static String entry(String... columns) {
+		StringBuilder entry = new StringBuilder();
+		for (String column : columns) {
+			if (entry.length() > 0) {
+				entry.append('\t');
+			}
+			entry.append(column);
+		}
+		return entry.toString();
+	}
+
+	/**
+	 * Writes the entries of this run, merged with the entries of the previous
+	 * index of the output directory whose types were not compiled again but
+	 * still exist, so that incremental compilations keep the whole index
+	 */
+	private void writeIndex() {
+		Set<String> index = Sets.newTreeSet(entries);
+		for (String entry : readPreviousIndex()) {
+			List<String> columns = Splitter.on('\t').splitToList(entry);
+			if (columns.size() > 1 && !compiledTypes.contains(columns.get(1)) && exists(columns.get(1))) {
+				index.add(entry);
+			}
+		}
+		if (index.isEmpty()) {
+			return;
+		}
+		try {
+			FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+			Writer writer = resource.openWriter();
+			try {
+				for (String entry : index) {
+					writer.write(entry);
+					writer.write('\n');
+				}
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write " + INDEX_RESOURCE + " : " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the entries of the index left in the output directory by a
+	 *         previous compilation, empty if there is none
+	 */
+	private List<String> readPreviousIndex() {
+		try {
+			FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX_RESOURCE);
+			Reader reader = resource.openReader(true);
+			try {
+				return CharStreams.readLines(reader);
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			return Collections.emptyList();
+		} catch (IllegalArgumentException e) {
+			return Collections.emptyList();
+		}
+	}
+
+	private boolean exists(String binaryName) {
+		return processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.')) != null;
+	}
+
+}
@@ -0,0 +1,354 @@
+package org.theglump.gini.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+
+import org.theglump.gini.GeneratedProxy;
+import org.theglump.gini.GiniException;
+import org.theglump.gini.ProxyInterceptor;
+import org.theglump.gini.annotation.Cached;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+
+/**
+ * Writes the source of the {@link GeneratedProxy} of a managed class. The
+ * proxy overrides the public methods declared by the class and matched by one
+ * of the given joinpoints, the same way contexts match them at runtime, or
+ * carrying one of the given annotations or {@link Cached}, and mirrors its
+ * non private constructors. Methods of a class carrying one of the given
+ * annotations are all overridden.
+ * Each overridden method also gets a typed entry point and a method calling
+ * the method of the class, used by chains of typed advices.
+ *
+ * Abstract, final and private classes, inner classes and classes without a
+ * non private constructor are not proxified.
+ *
+ */
+class ProxyWriter {
+
+	private static final String[] GENERATED_ANNOTATIONS = { "javax.annotation.processing.Generated", "javax.annotation.Generated" };
+
+	private final ProcessingEnvironment processingEnv;
+
+	ProxyWriter(ProcessingEnvironment processingEnv) {
+		this.processingEnv = processingEnv;
+	}
+
+	/**
+	 * Writes the proxy of the given managed class
+	 *
+	 * @param type
+	 * @param joinpoints
+	 * @param annotations
+	 *            qualified names of the annotations of annotation pointcuts
+	 * @return the binary name of the proxy class, null when the class is not
+	 *         proxified
+	 * @throws IOException
+	 */
+	String write(TypeElement type, Collection<Pattern> joinpoints, Collection<String> annotations) throws IOException {
+		List<ExecutableElement> constructors = getConstructors(type);
+		if (!isProxiable(type) || constructors.isEmpty()) {
+			return null;
+		}
+		List<ExecutableElement> methods = getInterceptedMethods(type, joinpoints, annotations);
+		if (methods.isEmpty()) {
+			return null;
+		}
+		String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		String binaryName = processingEnv.getElementUtils().getBinaryName(type) + IndexProcessor.PROXY_SUFFIX;
+		String simpleName = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+		Writer writer = processingEnv.getFiler().createSourceFile(binaryName, type).openWriter();
+		try {
+			writer.write(source(type, packageName, simpleName, constructors, methods));
+		} finally {
+			writer.close();
+		}
+		return binaryName;
+	}
+
+	private static boolean isProxiable(TypeElement type) {
+		Set<Modifier> modifiers = type.getModifiers();
+		if (modifiers.contains(Modifier.ABSTRACT) || modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.PRIVATE)) {
+			return false;
+		}
+		if (type.getNestingKind() == NestingKind.TOP_LEVEL) {
+			return true;
+		}
+		return type.getNestingKind() == NestingKind.MEMBER && modifiers.contains(Modifier.STATIC) && isProxiable((TypeElement) type.getEnclosingElement());
+	}
+
+	private static List<ExecutableElement> getConstructors(TypeElement type) {
+		List<ExecutableElement> constructors = Lists.newArrayList();
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			if (!constructor.getModifiers().contains(Modifier.PRIVATE)) {
+				constructors.add(constructor);
+			}
+		}
+		return constructors;
+	}
+
+	/**
+	 * Methods are matched against the pathes of the class and of its super
+	 * types, and sorted by name and parameter types so that their indexes do
+	 * not depend on the compiler
+	 */
+	private List<ExecutableElement> getInterceptedMethods(TypeElement type, Collection<Pattern> joinpoints, Collection<String> annotations) {
+		List<ExecutableElement> methods = Lists.newArrayList();
+		Set<String> typeNames = getTypeNames(type);
+		boolean annotatedType = isAnnotated(type, annotations);
+		for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+			Set<Modifier> modifiers = method.getModifiers();
+			if (modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.FINAL)
+					&& (method.getAnnotation(Cached.class) != null || annotatedType || isAnnotated(method, annotations) || matchesAny(joinpoints,
+							typeNames, method.getSimpleName().toString()))) {
+				methods.add(method);
+			}
+		}
+		return Ordering.usingToString().sortedCopy(methods);
+	}
+
+	private static boolean isAnnotated(Element element, Collection<String> annotations) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if (annotations.contains(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean matchesAny(Collection<Pattern> joinpoints, Set<String> typeNames, String methodName) {
+		for (Pattern joinpoint : joinpoints) {
+			for (String typeName : typeNames) {
+				if (joinpoint.matcher(typeName + "." + methodName).matches()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private Set<String> getTypeNames(TypeElement type) {
+		Set<String> names = Sets.newLinkedHashSet();
+		names.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+		for (TypeMirror superType : processingEnv.getTypeUtils().directSupertypes(type.asType())) {
+			names.addAll(getTypeNames((TypeElement) ((DeclaredType) superType).asElement()));
+		}
+		return names;
+	}
+
+	/**
+	 * @return the name of the Generated annotation available to the compiled
+	 *         sources, moved to javax.annotation.processing by Java 9, or
+	 *         null if there is none
+	 */
+	private String generatedAnnotation() {
+		for (String name : GENERATED_ANNOTATIONS) {
+			if (processingEnv.getElementUtils().getTypeElement(name) != null) {
+				return name;
+			}
+		}
+		return null;
+	}
+
+	private String source(TypeElement type, String packageName, String simpleName, List<ExecutableElement> constructors,
+			List<ExecutableElement> methods) {
+		String superclass = typeName(type.asType());
+		DeclaredType declaredType = (DeclaredType) type.asType();
+		StringBuilder source = new StringBuilder();
+		if (!packageName.isEmpty()) {
+			source.append("package ").append(packageName).append(";\n\n");
+		}
+		String generated = generatedAnnotation();
+		if (generated != null) {
+			source.append('@').append(generated).append("(\"").append(IndexProcessor.class.getName()).append("\")\n");
+		}
+		source.append("@SuppressWarnings(\"unchecked\")\n");
+		source.append("public class ").append(simpleName).append(" extends ").append(superclass).append(" implements ")
+				.append(GeneratedProxy.class.getName()).append(" {\n\n");
+		source.append("\tpublic static final java.lang.reflect.Method[] ").append(GeneratedProxy.METHODS_FIELD).append(" = gini$lookupMethods();\n\n");
+		source.append("\tprivate ").append(ProxyInterceptor.class.getName()).append(" gini$interceptor;\n\n");
+
+		for (ExecutableElement constructor : constructors) {
+			ExecutableType constructorType = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declaredType, constructor);
+			source.append("\tpublic ").append(simpleName).append('(').append(parameters(constructorType)).append(')')
+					.append(throwsClause(constructorType)).append(" {\n");
+			source.append("\t\tsuper(").append(arguments(constructorType)).append(");\n");
+			source.append("\t}\n\n");
+		}
+
+		for (int i = 0; i < methods.size(); i++) {
+			ExecutableElement method = methods.get(i);
+			ExecutableType methodType = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declaredType, method);
+			String returnType = typeName(methodType.getReturnType());
+			String typed = GeneratedProxy.TYPED_INTERFACE_PREFIX + i;
+			source.append("\tpublic interface ").append(typed).append(" {\n");
+			source.append("\t\t").append(returnType).append(" invoke(").append(parameters(methodType)).append(')').append(throwsClause(methodType))
+					.append(";\n");
+			source.append("\t}\n\n");
+			source.append("\tprivate ").append(typed).append(" gini$typed").append(i).append(";\n\n");
+		}
+
+		for (int i = 0; i < methods.size(); i++) {
+			ExecutableElement method = methods.get(i);
+			ExecutableType methodType = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declaredType, method);
+			String name = method.getSimpleName().toString();
+			boolean isVoid = methodType.getReturnType().getKind() == TypeKind.VOID;
+			source.append("\t@Override\n");
+			source.append("\tpublic ").append(typeName(methodType.getReturnType())).append(' ').append(name).append('(')
+					.append(parameters(methodType)).append(')').append(throwsClause(methodType)).append(" {\n");
+			source.append("\t\t").append(GeneratedProxy.TYPED_INTERFACE_PREFIX).append(i).append(" typed = gini$typed").append(i).append(";\n");
+			source.append("\t\tif (typed != null) {\n");
+			source.append(isVoid ? "\t\t\t" : "\t\t\treturn ").append("typed.invoke(").append(arguments(methodType)).append(");\n");
+			if (isVoid) {
+				source.append("\t\t\treturn;\n");
+			}
+			source.append("\t\t}\n");
+			source.append("\t\tif (gini$interceptor == null) {\n");
+			source.append(isVoid ? "\t\t\tsuper." : "\t\t\treturn super.").append(name).append('(').append(arguments(methodType)).append(");\n");
+			if (isVoid) {
+				source.append("\t\t\treturn;\n");
+			}
+			source.append("\t\t}\n");
+			source.append(isVoid ? "\t\t" : "\t\treturn (" + boxedTypeName(methodType.getReturnType()) + ") ");
+			source.append("gini$interceptor.intercept(this, ").append(i).append(", new Object[] {").append(arguments(methodType)).append("});\n");
+			source.append("\t}\n\n");
+
+			source.append("\tpublic ").append(typeName(methodType.getReturnType())).append(' ').append(GeneratedProxy.SUPER_METHOD_PREFIX).append(i)
+					.append('(').append(parameters(methodType)).append(')').append(" {\n");
+			// exceptions are wrapped as MethodInvoker does, typed chains ending here
+			source.append("\t\ttry {\n");
+			source.append(isVoid ? "\t\t\tsuper." : "\t\t\treturn super.").append(name).append('(').append(arguments(methodType)).append(");\n");
+			source.append("\t\t} catch (Throwable e) {\n");
+			source.append("\t\t\tthrow new ").append(GiniException.class.getName()).append("(\"could not call method on proxy \" + this, e);\n");
+			source.append("\t\t}\n");
+			source.append("\t}\n\n");
+		}
+
+		source.append("\t@Override\n");
+		source.append("\tpublic void gini$setInterceptor(").append(ProxyInterceptor.class.getName()).append(" interceptor) {\n");
+		source.append("\t\tthis.gini$interceptor = interceptor;\n");
+		source.append("\t}\n\n");
+
+		source.append("\t@Override\n");
+		source.append("\tpublic void gini$setTypedChain(int method, Object chain) {\n");
+		source.append("\t\tswitch (method) {\n");
+		for (int i = 0; i < methods.size(); i++) {
+			source.append("\t\tcase ").append(i).append(":\n");
+			source.append("\t\t\tgini$typed").append(i).append(" = (").append(GeneratedProxy.TYPED_INTERFACE_PREFIX).append(i).append(") chain;\n");
+			source.append("\t\t\tbreak;\n");
+		}
+		source.append("\t\tdefault:\n");
+		source.append("\t\t\tthrow new IllegalArgumentException(\"Unknown method \" + method);\n");
+		source.append("\t\t}\n");
+		source.append("\t}\n\n");
+
+		source.append("\t@Override\n");
+		source.append("\tpublic Object gini$invokeSuper(int method, Object[] args) throws Throwable {\n");
+		source.append("\t\tswitch (method) {\n");
+		for (int i = 0; i < methods.size(); i++) {
+			ExecutableElement method = methods.get(i);
+			ExecutableType methodType = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declaredType, method);
+			boolean isVoid = methodType.getReturnType().getKind() == TypeKind.VOID;
+			source.append("\t\tcase ").append(i).append(":\n");
+			source.append(isVoid ? "\t\t\tsuper." : "\t\t\treturn super.").append(method.getSimpleName()).append('(').append(castArguments(methodType))
+					.append(");\n");
+			if (isVoid) {
+				source.append("\t\t\treturn null;\n");
+			}
+		}
+		source.append("\t\tdefault:\n");
+		source.append("\t\t\tthrow new IllegalArgumentException(\"Unknown method \" + method);\n");
+		source.append("\t\t}\n");
+		source.append("\t}\n\n");
+
+		source.append("\tprivate static java.lang.reflect.Method[] gini$lookupMethods() {\n");
+		source.append("\t\ttry {\n");
+		source.append("\t\t\treturn new java.lang.reflect.Method[] {\n");
+		for (ExecutableElement method : methods) {
+			ExecutableType methodType = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declaredType, method);
+			source.append("\t\t\t\t").append(superclass).append(".class.getMethod(\"").append(method.getSimpleName()).append('"');
+			for (TypeMirror parameterType : methodType.getParameterTypes()) {
+				source.append(", ").append(typeName(parameterType)).append(".class");
+			}
+			source.append("),\n");
+		}
+		source.append("\t\t\t};\n");
+		source.append("\t\t} catch (NoSuchMethodException e) {\n");
+		source.append("\t\t\tthrow new ExceptionInInitializerError(e);\n");
+		source.append("\t\t}\n");
+		source.append("\t}\n\n");
+
+		source.append("}\n");
+		return source.toString();
+	}
+
+	/**
+	 * Types are erased : the proxy extends the raw type of the managed class
+	 * and its methods override the erasure of the methods of the class
+	 */
+	private String typeName(TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type).toString();
+	}
+
+	private String boxedTypeName(TypeMirror type) {
+		if (type.getKind().isPrimitive()) {
+			return processingEnv.getTypeUtils().boxedClass((PrimitiveType) type).getQualifiedName().toString();
+		}
+		return typeName(type);
+	}
+
+	private String parameters(ExecutableType type) {
+		StringBuilder parameters = new StringBuilder();
+		List<? extends TypeMirror> parameterTypes = type.getParameterTypes();
+		for (int i = 0; i < parameterTypes.size(); i++) {
+			parameters.append(i > 0 ? ", " : "").append(typeName(parameterTypes.get(i))).append(" p").append(i);
+		}
+		return parameters.toString();
+	}
+
+	private static String arguments(ExecutableType type) {
+		StringBuilder arguments = new StringBuilder();
+		for (int i = 0; i < type.getParameterTypes().size(); i++) {
+			arguments.append(i > 0 ? ", " : "").append('p').append(i);
+		}
+		return arguments.toString();
+	}
+
+	private String castArguments(ExecutableType type) {
+		StringBuilder arguments = new StringBuilder();
+		List<? extends TypeMirror> parameterTypes = type.getParameterTypes();
+		for (int i = 0; i < parameterTypes.size(); i++) {
+			arguments.append(i > 0 ? ", " : "").append('(').append(boxedTypeName(parameterTypes.get(i))).append(") args[").append(i).append(']');
+		}
+		return arguments.toString();
+	}
+
+	private String throwsClause(ExecutableType type) {
+		StringBuilder throwsClause = new StringBuilder();
+		for (TypeMirror thrownType : type.getThrownTypes()) {
+			throwsClause.append(throwsClause.length() == 0 ? " throws " : ", ").append(typeName(thrownType));
+		}
+		return throwsClause.toString();
+	}
+
+}
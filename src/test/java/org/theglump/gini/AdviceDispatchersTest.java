@@ -0,0 +1,110 @@
+package org.theglump.gini;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.theglump.gini.bean.Advice1;
+
+public class AdviceDispatchersTest {
+
+	@Test
+	public void should_call_advice_through_generated_dispatcher() throws Exception {
+		// Setup
+		Method adviceMethod = Advice1.class.getMethod("intercept1", Object.class, Method.class, Object[].class, MethodInvoker.class);
+		MethodInvoker methodInvoker = Mockito.mock(MethodInvoker.class);
+		Object[] args = new Object[0];
+		Mockito.when(methodInvoker.invokeMethod(args)).thenReturn("stepImpl1");
+
+		// Test
+		AdviceDispatcher dispatcher = AdviceDispatchers.forMethod(adviceMethod);
+		Object result = dispatcher.dispatch(new Advice1(), "bean", adviceMethod, args, methodInvoker);
+
+		// Assert
+		assertThat(dispatcher.getClass().getName()).startsWith(Advice1.class.getName());
+		assertThat(AdviceDispatchers.forMethod(adviceMethod).getClass()).isSameAs(dispatcher.getClass());
+		assertThat(result).isEqualTo("interceptor1 => stepImpl1");
+	}
+
+	@Test
+	public void should_call_non_public_advice_by_reflection() throws Exception {
+		// Setup
+		Method adviceMethod = PrivateAdvice.class.getDeclaredMethod("intercept", Object.class, Method.class, Object[].class, MethodInvoker.class);
+
+		// Test
+		Object result = AdviceDispatchers.forMethod(adviceMethod).dispatch(new PrivateAdvice(), "bean", adviceMethod, new Object[0], null);
+
+		// Assert
+		assertThat(result).isEqualTo(42);
+	}
+
+	@Test
+	public void should_reject_advice_with_wrong_signature() throws Exception {
+		// Setup
+		Method adviceMethod = WrongAdvice.class.getMethod("intercept", Object.class, Method.class);
+
+		// Test
+		try {
+			AdviceDispatchers.forMethod(adviceMethod);
+			fail();
+		} catch (GiniException e) {
+			// Assert
+			assertThat(e.getMessage()).contains("intercept");
+		}
+	}
+
+	@Test
+	public void should_rethrow_checked_exceptions_of_advices_as_is() throws Exception {
+		for (Method adviceMethod : new Method[] {
+				ThrowingAdvice.class.getMethod("intercept", Object.class, Method.class, Object[].class, MethodInvoker.class),
+				PrivateAdvice.class.getDeclaredMethod("fail", Object.class, Method.class, Object[].class, MethodInvoker.class) }) {
+			// Setup
+			Object advice = adviceMethod.getDeclaringClass() == ThrowingAdvice.class ? new ThrowingAdvice() : new PrivateAdvice();
+
+			// Test
+			try {
+				AdviceDispatchers.forMethod(adviceMethod).dispatch(advice, "bean", adviceMethod, new Object[0], null);
+				fail();
+			} catch (Exception e) {
+				// Assert
+				assertThat(e).isInstanceOf(IOException.class);
+			}
+		}
+	}
+
+	public static class WrongAdvice {
+
+		public Object intercept(Object bean, Method method) {
+			return null;
+		}
+
+	}
+
+	public static class ThrowingAdvice {
+
+		public Object intercept(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) throws IOException {
+			throw new IOException();
+		}
+
+	}
+
+	private static class PrivateAdvice {
+
+		@SuppressWarnings("unused")
+		Object fail(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) throws IOException {
+			throw new IOException();
+		}
+
+
+		@SuppressWarnings("unused")
+		int intercept(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+			return 42;
+		}
+
+	}
+
+}
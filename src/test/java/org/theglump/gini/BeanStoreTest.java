@@ -57,6 +57,33 @@ public class BeanStoreTest {
 		assertThat(store.getBean(INTERFACE, "stepImpl1")).isEqualTo(IMPL1);
 	}
 
+	@Test
+	public void should_find_bean_in_parent_when_not_registered() {
+		BeanStore parent = new BeanStore();
+		parent.registerBean(IMPL1);
+		parent.freeze();
+		store = new BeanStore(parent);
+		store.registerBean(IMPL2);
+
+		assertThat(store.getBean(IMPL1_CLASS)).isEqualTo(IMPL1);
+		assertThat(store.getBean(INTERFACE)).isEqualTo(IMPL2);
+		assertThat(store.hasBean(IMPL1_CLASS)).isTrue();
+	}
+
+	@Test
+	public void should_keep_frozen_beans_visible_until_frozen_again() {
+		store.registerBean(IMPL1);
+		store.freeze();
+		store.unregister(Sets.<Class<?>> newHashSet(IMPL1_CLASS));
+		BeanStore view = store.unfrozen();
+		view.registerBean(IMPL2);
+
+		assertThat(store.getBean(INTERFACE)).isEqualTo(IMPL1);
+		assertThat(view.getBean(INTERFACE)).isEqualTo(IMPL2);
+		store.freeze();
+		assertThat(store.getBean(INTERFACE)).isEqualTo(IMPL2);
+	}
+
 	@Test(expected = GiniException.class)
 	public void should_throw_exception_when_several_implem_and_requested_by_interface() {
 		store.registerBean(IMPL1);
@@ -65,6 +92,37 @@ public class BeanStoreTest {
 		store.getBean(INTERFACE);
 	}
 
+	@Test
+	public void should_find_bean_when_frozen() {
+		store.registerBean(IMPL1);
+		store.registerBean(IMPL2);
+		store.freeze();
+
+		assertThat(store.getBean(IMPL1_CLASS)).isEqualTo(IMPL1);
+		assertThat(store.getBean(INTERFACE, "stepImpl2")).isEqualTo(IMPL2);
+	}
+
+	@Test(expected = GiniException.class)
+	public void should_throw_exception_when_frozen_and_no_bean_found() {
+		store.registerBean(IMPL1);
+		store.freeze();
+
+		store.getBean(Runnable.class);
+	}
+
+	@Test
+	public void should_only_see_beans_registered_after_freeze_once_frozen_again() {
+		store.registerBean(IMPL1);
+		store.freeze();
+		store.registerBean(IMPL2);
+
+		assertThat(store.getBean(INTERFACE)).isEqualTo(IMPL1);
+
+		store.freeze();
+
+		assertThat(store.getBean(INTERFACE, "stepImpl2")).isEqualTo(IMPL2);
+	}
+
 	@Test
 	public void should_find_interceptors_for_submitted_method() {
 		store.registerInterceptor(interceptor);
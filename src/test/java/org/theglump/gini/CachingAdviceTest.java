@@ -0,0 +1,174 @@
+package org.theglump.gini;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.theglump.gini.annotation.Cached;
+
+public class CachingAdviceTest {
+
+	@Test
+	public void should_cache_results_by_arguments() throws Exception {
+		// Setup
+		CachingAdvice advice = new CachingAdvice(cached("bounded"));
+		CountingInvoker invoker = new CountingInvoker();
+
+		// Test
+		advice.cache(null, null, new Object[] { new int[] { 1, 2 } }, invoker);
+		advice.cache(null, null, new Object[] { new int[] { 1, 2 } }, invoker);
+		advice.cache(null, null, new Object[] { new int[] { 2, 1 } }, invoker);
+		advice.cache(null, null, new Object[] { new int[] { 3 } }, invoker);
+		advice.cache(null, null, new Object[] { new int[] { 1, 2 } }, invoker);
+
+		// Assert
+		assertThat(invoker.calls.get()).isEqualTo(4);
+		assertThat(advice.stats().hitCount()).isEqualTo(1);
+		assertThat(advice.stats().evictionCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void should_not_cache_exceptions() throws Exception {
+		// Setup
+		CachingAdvice advice = new CachingAdvice(cached("bounded"));
+		final AtomicInteger calls = new AtomicInteger();
+		MethodInvoker failing = new MethodInvoker() {
+
+			@Override
+			public Object invokeMethod(Object[] args) {
+				calls.incrementAndGet();
+				throw new IllegalStateException();
+			}
+
+		};
+
+		// Test
+		for (int i = 0; i < 2; i++) {
+			try {
+				advice.cache(null, null, new Object[] { "a" }, failing);
+				fail();
+			} catch (IllegalStateException e) {
+				// expected
+			}
+		}
+
+		// Assert
+		assertThat(calls.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void should_coalesce_concurrent_misses() throws Exception {
+		// Setup
+		final CachingAdvice advice = new CachingAdvice(cached("bounded"));
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		final MethodInvoker slow = new MethodInvoker() {
+
+			@Override
+			public Object invokeMethod(Object[] args) {
+				calls.incrementAndGet();
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				return "result";
+			}
+
+		};
+		Callable<Object> call = new Callable<Object>() {
+
+			@Override
+			public Object call() {
+				return advice.cache(null, null, new Object[] { "a" }, slow);
+			}
+
+		};
+		final List<Thread> threads = new CopyOnWriteArrayList<Thread>();
+		ExecutorService executor = Executors.newFixedThreadPool(3, new ThreadFactory() {
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable);
+				threads.add(thread);
+				return thread;
+			}
+
+		});
+
+		// Test
+		Future<Object> first = executor.submit(call);
+		started.await(5, TimeUnit.SECONDS);
+		Future<Object> second = executor.submit(call);
+		Future<Object> third = executor.submit(call);
+		awaitWaitingInCache(threads.get(1));
+		awaitWaitingInCache(threads.get(2));
+		release.countDown();
+
+		// Assert
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+		assertThat(third.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+		assertThat(calls.get()).isEqualTo(1);
+		executor.shutdown();
+	}
+
+	@Cached(maximumSize = 2)
+	public void bounded() {
+	}
+
+	/**
+	 * Waits until the given thread is blocked in the cache, waiting for the
+	 * value loaded by another thread
+	 */
+	private static void awaitWaitingInCache(Thread thread) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!isWaitingInCache(thread)) {
+			if (System.nanoTime() > deadline) {
+				fail(thread.getName() + " is not waiting in the cache");
+			}
+			Thread.sleep(1);
+		}
+	}
+
+	private static boolean isWaitingInCache(Thread thread) {
+		if (thread.getState() != Thread.State.WAITING) {
+			return false;
+		}
+		for (StackTraceElement element : thread.getStackTrace()) {
+			if (element.getClassName().equals(CachingAdvice.class.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Cached cached(String methodName) throws NoSuchMethodException {
+		return CachingAdviceTest.class.getMethod(methodName).getAnnotation(Cached.class);
+	}
+
+	private static class CountingInvoker implements MethodInvoker {
+
+		private final AtomicInteger calls = new AtomicInteger();
+
+		@Override
+		public Object invokeMethod(Object[] args) {
+			return calls.incrementAndGet();
+		}
+
+	}
+
+}
@@ -0,0 +1,155 @@
+package org.theglump.gini;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.theglump.gini.annotated.Invoice;
+import org.theglump.gini.annotated.Ledger;
+import org.theglump.gini.annotated.Timed;
+import org.theglump.gini.annotated.Traced;
+import org.theglump.gini.bean.Advice1;
+import org.theglump.gini.bean.Root;
+import org.theglump.gini.bean.RuleImpl;
+import org.theglump.gini.bean.StepImpl1;
+import org.theglump.gini.bean.StepImpl2;
+import org.theglump.gini.inherited.GreetingAdvice;
+import org.theglump.gini.inherited.UpperCaseAdvice;
+import org.theglump.gini.plugin.Plugin;
+import org.theglump.gini.plugin.ShoutAdvice;
+
+import com.google.common.collect.Sets;
+
+public class ClassIndexTest {
+
+	@Test
+	public void should_index_managed_types_advices_and_inject_fields() {
+		// Test
+		ClassIndex index = ClassIndex.scan("org.theglump.gini.bean");
+
+		// Assert
+		assertThat(index.getManagedTypes()).containsOnly(Root.class, StepImpl1.class, StepImpl2.class, RuleImpl.class);
+		assertThat(index.getAdviceTypes()).containsOnly(Advice1.class);
+		assertThat(index.getManagedPublicMethods()).isNotEmpty();
+		assertThat(fieldNames(index.getInjectFields(Root.class))).containsOnly("stepImpl1", "stepImpl2", "concreteStep");
+		assertThat(index.getInjectFields(StepImpl2.class)).isEmpty();
+	}
+
+	@Test
+	public void should_merge_packages_scanned_in_parallel() {
+		// Setup
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			// Test
+			ClassIndex index = ClassIndex.scan(executor, "org.theglump.gini.bean", "org.theglump.gini.annotation");
+
+			// Assert
+			assertThat(index.getManagedTypes()).containsOnly(Root.class, StepImpl1.class, StepImpl2.class, RuleImpl.class);
+			assertThat(index.getAdviceTypes()).containsOnly(Advice1.class);
+			assertThat(fieldNames(index.getInjectFields(StepImpl1.class))).containsOnly("rule");
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void should_load_index_written_at_build_time() {
+		// Setup
+		ClassIndex scanned = ClassIndex.scan("org.theglump.gini.bean");
+
+		// Test
+		ClassIndex loaded = ClassIndex.load(getClass().getClassLoader(), "org.theglump.gini.bean", "org.theglump.gini.unknown");
+
+		// Assert
+		assertThat(loaded.getPackageNames()).containsOnly("org.theglump.gini.bean");
+		assertThat(loaded.getManagedTypes()).isEqualTo(scanned.getManagedTypes());
+		assertThat(loaded.getAdviceTypes()).isEqualTo(scanned.getAdviceTypes());
+		assertThat(loaded.getManagedPublicMethods()).isEqualTo(scanned.getManagedPublicMethods());
+		assertThat(loaded.getInjectFields(Root.class)).isEqualTo(scanned.getInjectFields(Root.class));
+		assertThat(loaded.getAdviceMethods(Advice1.class)).isEqualTo(scanned.getAdviceMethods(Advice1.class));
+		for (Method aroundMethod : scanned.getAdviceMethods(Advice1.class)) {
+			assertThat(loaded.getJoinpoint(aroundMethod)).isEqualTo(scanned.getJoinpoint(aroundMethod));
+		}
+	}
+
+	@Test
+	public void should_not_load_packages_only_partly_indexed() {
+		// Test
+		ClassIndex loaded = ClassIndex.load(getClass().getClassLoader(), "org.theglump.gini", "org.theglump.gini.bean.Step");
+
+		// Assert
+		// org.theglump.gini is also found in the main classes, compiled without index
+		assertThat(loaded.getPackageNames()).containsOnly("org.theglump.gini.bean.Step");
+	}
+
+	@Test
+	public void should_index_inherited_advice_methods() throws Exception {
+		// Setup
+		Method upperCase = UpperCaseAdvice.class.getMethod("upperCase", Object.class, Method.class, Object[].class, MethodInvoker.class);
+
+		// Test
+		ClassIndex scanned = ClassIndex.scan("org.theglump.gini.inherited");
+		ClassIndex loaded = ClassIndex.load(getClass().getClassLoader(), "org.theglump.gini.inherited");
+
+		// Assert
+		assertThat(scanned.getAdviceMethods(GreetingAdvice.class)).containsOnly(upperCase);
+		assertThat(loaded.getAdviceMethods(GreetingAdvice.class)).containsOnly(upperCase);
+	}
+
+	@Test
+	public void should_load_annotated_methods_from_index() throws Exception {
+		// Setup
+		ClassIndex scanned = ClassIndex.scan("org.theglump.gini.annotated");
+
+		// Test
+		ClassIndex loaded = ClassIndex.load(getClass().getClassLoader(), "org.theglump.gini.annotated");
+
+		// Assert
+		assertThat(loaded.getAnnotatedMethods(Timed.class)).containsOnly(Invoice.class.getMethod("total"), Invoice.class.getMethod("label"));
+		assertThat(loaded.getAnnotatedMethods(Timed.class)).isEqualTo(scanned.getAnnotatedMethods(Timed.class));
+		assertThat(loaded.getAnnotatedMethods(Traced.class)).isEqualTo(scanned.getAnnotatedMethods(Traced.class));
+		assertThat(loaded.getAnnotatedMethods(Traced.class)).containsOnly(Ledger.class.getMethod("balance"));
+	}
+
+	@Test
+	public void should_find_inject_fields_of_classes_outside_of_the_index() {
+		// Setup
+		ClassIndex index = ClassIndex.scan("org.theglump.gini.bean");
+
+		// Test
+		Set<Field> fields = index.getInjectFields(GiniTest.class);
+
+		// Assert
+		assertThat(fieldNames(fields)).containsOnly("root");
+	}
+
+	@Test
+	public void should_keep_sibling_packages_sharing_a_prefix() {
+		// Setup
+		ClassIndex index = ClassIndex.scan("org.theglump.gini.plug", "org.theglump.gini.plugin");
+
+		// Test
+		ClassIndex without = index.without("org.theglump.gini.plug");
+
+		// Assert
+		assertThat(without.getPackageNames()).containsOnly("org.theglump.gini.plugin");
+		assertThat(without.getManagedTypes()).containsOnly(Plugin.class);
+		assertThat(without.getAdviceTypes()).containsOnly(ShoutAdvice.class);
+		assertThat(fieldNames(without.getInjectFields(Plugin.class))).containsOnly("greeter");
+	}
+
+	private Set<String> fieldNames(Set<Field> fields) {
+		Set<String> names = Sets.newHashSet();
+		for (Field field : fields) {
+			names.add(field.getName());
+		}
+		return names;
+	}
+
+}
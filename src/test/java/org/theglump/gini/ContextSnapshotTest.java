@@ -0,0 +1,96 @@
+package org.theglump.gini;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.theglump.gini.cached.Catalog;
+import org.theglump.gini.cached.LabelAdvice;
+
+import com.google.common.collect.SetMultimap;
+import com.google.common.io.Files;
+
+public class ContextSnapshotTest {
+
+	private static final Set<String> PACKAGES = Collections.singleton("org.theglump.gini.cached");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void should_read_written_snapshot() throws Exception {
+		// Setup
+		File file = new File(folder.getRoot(), "gini.snapshot");
+		ClassIndex index = ClassIndex.scan("org.theglump.gini.cached");
+		SetMultimap<Method, Method> targetMethods = new InterceptorHelper(index).computeTargetMethods();
+
+		// Test
+		ContextSnapshot.write(file, getClass().getClassLoader(), PACKAGES, index, targetMethods);
+		ContextSnapshot snapshot = ContextSnapshot.read(file, getClass().getClassLoader(), PACKAGES);
+
+		// Assert
+		assertThat(snapshot).isNotNull();
+		assertThat(snapshot.getIndex().getPackageNames()).isEqualTo(index.getPackageNames());
+		assertThat(snapshot.getIndex().getManagedTypes()).containsOnly(Catalog.class);
+		assertThat(snapshot.getIndex().getAdviceTypes()).containsOnly(LabelAdvice.class);
+		assertThat(snapshot.getIndex().getGeneratedProxy(Catalog.class)).isEqualTo(index.getGeneratedProxy(Catalog.class));
+		assertThat(snapshot.getIndex().getIndexedInjectFields()).isEqualTo(index.getIndexedInjectFields());
+		for (Method adviceMethod : index.getAdviceMethods(LabelAdvice.class)) {
+			assertThat(snapshot.getIndex().getJoinpoint(adviceMethod)).isEqualTo(index.getJoinpoint(adviceMethod));
+		}
+		assertThat(snapshot.getTargetMethods()).isEqualTo(targetMethods);
+	}
+
+	@Test
+	public void should_ignore_corrupted_snapshot_or_snapshot_of_other_packages() throws Exception {
+		// Setup
+		File file = new File(folder.getRoot(), "gini.snapshot");
+		ClassIndex index = ClassIndex.scan("org.theglump.gini.cached");
+		ContextSnapshot.write(file, getClass().getClassLoader(), PACKAGES, index, new InterceptorHelper(index).computeTargetMethods());
+		File corrupted = new File(folder.getRoot(), "corrupted.snapshot");
+		byte[] bytes = Files.toByteArray(file);
+		bytes[bytes.length - 1]++;
+		Files.write(bytes, corrupted);
+
+		// Test
+		ContextSnapshot otherPackages = ContextSnapshot.read(file, getClass().getClassLoader(), Collections.singleton("org.theglump.gini.typed"));
+		ContextSnapshot corruptedSnapshot = ContextSnapshot.read(corrupted, getClass().getClassLoader(), PACKAGES);
+		ContextSnapshot missing = ContextSnapshot.read(new File(folder.getRoot(), "missing"), getClass().getClassLoader(), PACKAGES);
+
+		// Assert
+		assertThat(otherPackages).isNull();
+		assertThat(corruptedSnapshot).isNull();
+		assertThat(missing).isNull();
+	}
+
+	@Test
+	public void should_change_fingerprint_when_a_class_file_changes() throws Exception {
+		// Setup
+		File classFile = new File(folder.getRoot(), "org/example/Foo.class");
+		Files.createParentDirs(classFile);
+		Files.write(new byte[] { 1, 2, 3 }, classFile);
+		ClassLoader classLoader = new URLClassLoader(new URL[] { folder.getRoot().toURI().toURL() }, null);
+		Set<String> packageNames = Collections.singleton("org.example");
+		long fingerprint = ContextSnapshot.fingerprint(classLoader, packageNames);
+
+		// Test
+		Files.write(new byte[] { 1, 2, 4 }, classFile);
+		long modified = ContextSnapshot.fingerprint(classLoader, packageNames);
+		Files.write(new byte[] { 1, 2, 3 }, new File(folder.getRoot(), "org/example/Bar.class"));
+		long added = ContextSnapshot.fingerprint(classLoader, packageNames);
+
+		// Assert
+		assertThat(ContextSnapshot.fingerprint(classLoader, Collections.singleton("org.example.Foo"))).isNotEqualTo(added);
+		assertThat(modified).isNotEqualTo(fingerprint);
+		assertThat(added).isNotEqualTo(modified);
+	}
+
+}
@@ -0,0 +1,117 @@
+package org.theglump.gini;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.theglump.gini.constructor.Controller;
+import org.theglump.gini.constructor.Repository;
+import org.theglump.gini.constructor.Service;
+import org.theglump.gini.cycle.Chicken;
+import org.theglump.gini.cycle.Egg;
+import org.theglump.gini.invalid.Circle;
+import org.theglump.gini.invalid.Drawing;
+import org.theglump.gini.invalid.Missing;
+import org.theglump.gini.invalid.Shape;
+import org.theglump.gini.invalid.Square;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+public class DependencyGraphTest {
+
+	private static final Function<Class<?>, Class<?>[]> PARAMETER_TYPES = new Function<Class<?>, Class<?>[]>() {
+
+		@Override
+		public Class<?>[] apply(Class<?> clazz) {
+			return BeanConstructor.forClass(clazz).getParameterTypes();
+		}
+
+	};
+
+	private static final Function<Class<?>, Set<Field>> INJECT_FIELDS = new Function<Class<?>, Set<Field>>() {
+
+		@Override
+		public Set<Field> apply(Class<?> clazz) {
+			return ClassIndex.scan(clazz.getPackage().getName()).getInjectFields(clazz);
+		}
+
+	};
+
+	@Test
+	public void should_create_dependencies_first() {
+		// Setup
+		Set<Class<?>> classes = ImmutableSet.<Class<?>> of(Controller.class, Repository.class, Service.class);
+
+		// Test
+		DependencyGraph graph = new DependencyGraph(classes, PARAMETER_TYPES);
+		List<List<Class<?>>> levels = graph.creationLevels(ImmutableList.<Class<?>> of(Controller.class, Repository.class, Service.class));
+
+		// Assert
+		assertThat(graph.getDependencies(Controller.class)).containsExactly(Service.class);
+		assertThat(levels).hasSize(3);
+		assertThat(levels.get(0)).containsExactly(Repository.class);
+		assertThat(levels.get(1)).containsExactly(Service.class);
+		assertThat(levels.get(2)).containsExactly(Controller.class);
+	}
+
+	@Test
+	public void should_reject_cyclic_dependencies() {
+		try {
+			// Test
+			new DependencyGraph(ImmutableSet.<Class<?>> of(Chicken.class, Egg.class), PARAMETER_TYPES);
+			fail("cycle should be detected");
+		} catch (GiniException e) {
+			// Assert
+			assertThat(e.getMessage()).contains("Cyclic constructor dependencies").contains(Chicken.class.getName() + " -> ")
+					.contains(Egg.class.getName() + " -> ");
+		}
+	}
+
+	@Test(expected = GiniException.class)
+	public void should_reject_unresolvable_dependencies() {
+		new DependencyGraph(ImmutableSet.<Class<?>> of(Service.class), PARAMETER_TYPES);
+	}
+
+	@Test
+	public void should_report_all_errors_at_once() {
+		// Setup
+		Set<Class<?>> classes = ImmutableSet.<Class<?>> of(Drawing.class, Square.class, Circle.class, Chicken.class, Egg.class);
+
+		try {
+			// Test
+			new DependencyGraph(classes, PARAMETER_TYPES, INJECT_FIELDS, Predicates.<Class<?>> alwaysFalse());
+			fail("errors should be detected");
+		} catch (GiniException e) {
+			// Assert
+			assertThat(e.getMessage()).startsWith("3 injection errors")
+					.contains("Could not find an instance for " + Missing.class.getName() + " in field missing of " + Drawing.class.getName())
+					.contains("Several instance for " + Shape.class.getName() + " in field shape of " + Drawing.class.getName())
+					.contains("Cyclic constructor dependencies").doesNotContain("field square");
+		}
+	}
+
+	@Test
+	public void should_resolve_fields_outside_of_the_graph() {
+		// Setup
+		Set<Class<?>> classes = ImmutableSet.<Class<?>> of(Drawing.class, Square.class);
+
+		// Test
+		new DependencyGraph(classes, PARAMETER_TYPES, INJECT_FIELDS, Predicates.<Class<?>> equalTo(Missing.class));
+
+		// Assert
+		try {
+			new DependencyGraph(classes, PARAMETER_TYPES, INJECT_FIELDS, Predicates.<Class<?>> alwaysFalse());
+			fail("missing bean should be detected");
+		} catch (GiniException e) {
+			assertThat(e.getMessage()).startsWith("Could not find an instance for " + Missing.class.getName());
+		}
+	}
+
+}
@@ -0,0 +1,30 @@
+package org.theglump.gini;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.junit.Test;
+import org.theglump.gini.generated.Accumulator;
+import org.theglump.gini.generated.Calculator;
+
+import com.google.common.collect.ImmutableSet;
+
+public class GeneratedProxiesTest {
+
+	@Test
+	public void should_use_generated_proxy_only_when_it_overrides_all_intercepted_methods() throws Exception {
+		// Setup
+		ClassIndex index = ClassIndex.load(getClass().getClassLoader(), "org.theglump.gini.generated");
+
+		// Test
+		Class<?> proxyClass = index.getGeneratedProxy(Calculator.class);
+
+		// Assert
+		assertThat(proxyClass.getSuperclass()).isSameAs(Calculator.class);
+		assertThat(ClassIndex.scan("org.theglump.gini.generated").getGeneratedProxy(Calculator.class)).isSameAs(proxyClass);
+		assertThat(ClassIndex.scan("org.theglump.gini.generated").getManagedTypes()).containsOnly(Calculator.class);
+		assertThat(GeneratedProxies.overridesAll(proxyClass,
+				ImmutableSet.of(Calculator.class.getMethod("add", int.class), Calculator.class.getMethod("reset")))).isTrue();
+		assertThat(GeneratedProxies.overridesAll(proxyClass, ImmutableSet.of(Accumulator.class.getMethod("last")))).isFalse();
+	}
+
+}
@@ -1,13 +1,58 @@
 package org.theglump.gini;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
 
 import org.junit.Test;
+import org.theglump.gini.annotated.Invoice;
+import org.theglump.gini.annotated.Ledger;
+import org.theglump.gini.annotated.MetricsAdvice;
 import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.async.Account;
+import org.theglump.gini.async.AuditAdvice;
 import org.theglump.gini.bean.Root;
+import org.theglump.gini.bean.Rule;
 import org.theglump.gini.bean.RuleImpl;
 import org.theglump.gini.bean.StepImpl1;
 import org.theglump.gini.bean.StepImpl2;
+import org.theglump.gini.cached.Catalog;
+import org.theglump.gini.chain.Greeter;
+import org.theglump.gini.chain.TraceAdvice;
+import org.theglump.gini.constructor.Controller;
+import org.theglump.gini.constructor.Repository;
+import org.theglump.gini.constructor.Session;
+import org.theglump.gini.generated.Calculator;
+import org.theglump.gini.generated.CountingAdvice;
+import org.theglump.gini.host.Host;
+import org.theglump.gini.inherited.Greeting;
+import org.theglump.gini.lazy.Client;
+import org.theglump.gini.lazy.ExpensiveService;
+import org.theglump.gini.lazy.cycle.Left;
+import org.theglump.gini.lazy.cycle.Right;
+import org.theglump.gini.plug.Plug;
+import org.theglump.gini.plugin.Plugin;
+import org.theglump.gini.scope.PooledParser;
+import org.theglump.gini.scope.Prototype;
+import org.theglump.gini.scope.ThreadBuffer;
+import org.theglump.gini.scope.Worker;
+import org.theglump.gini.tenant.TenantRule;
+import org.theglump.gini.tenant.TenantService;
+import org.theglump.gini.typed.Counter;
 
 // Integration tests
 public class GiniTest {
@@ -51,4 +96,677 @@ public class GiniTest {
 		assertThat(root.getConcreteStep().getRule().getRuleName()).isEqualTo("interceptor2 => ruleImpl");
 	}
 
+	@Test
+	public void shoud_succeed_with_parallel_scan() {
+		// Setup
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		Gini ctx;
+		try {
+			ctx = Gini.builder().packages("org.theglump.gini.bean", "org.theglump.gini.annotation").scanExecutor(executor).build();
+		} finally {
+			executor.shutdown();
+		}
+
+		// Test
+		root = ctx.getBean(Root.class);
+
+		// Assert
+		assertThat(root.getStep1().implemName()).isEqualTo("interceptor1 => stepImpl1");
+		assertThat(root.getConcreteStep().getRule().getRuleName()).isEqualTo("interceptor2 => ruleImpl");
+	}
+
+	@Test
+	public void shoud_succeed_without_build_time_index() {
+		// Setup
+		Gini ctx = Gini.builder().packages("org.theglump.gini.bean").useIndex(false).build();
+
+		// Test
+		root = ctx.getBean(Root.class);
+
+		// Assert
+		assertThat(root.getStep2().implemName()).isEqualTo("interceptor1 => stepImpl2");
+		assertThat(root.getConcreteStep().getRule().getRuleName()).isEqualTo("interceptor2 => ruleImpl");
+	}
+
+	@Test
+	public void shoud_call_every_advice_in_order() {
+		// Setup
+		Gini ctx = Gini.initialize("org.theglump.gini.chain");
+
+		// Test
+		String greeting = ctx.getBean(Greeter.class).greet("gini");
+
+		// Assert
+		assertThat(greeting).isEqualTo("trace(timing(hello timed gini))");
+	}
+
+	@Test
+	public void shoud_succeed_with_parallel_bootstrap() {
+		// Setup
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		Gini ctx;
+		try {
+			ctx = Gini.builder().packages("org.theglump.gini.bean").bootstrapExecutor(executor).build();
+		} finally {
+			executor.shutdown();
+		}
+
+		// Test
+		ctx.inject(this);
+
+		// Assert
+		assertThat(root.getStep1().implemName()).isEqualTo("interceptor1 => stepImpl1");
+		assertThat(root.getStep2().implemName()).isEqualTo("interceptor1 => stepImpl2");
+		assertThat(root.getConcreteStep().getRule().getRuleName()).isEqualTo("interceptor2 => ruleImpl");
+	}
+
+	@Test
+	public void shoud_report_every_failure_in_class_name_order() {
+		// Setup
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			// Test
+			Gini.builder().packages("org.theglump.gini.failing").bootstrapExecutor(executor).build();
+			fail("bootstrap should fail");
+		} catch (GiniException e) {
+			// Assert
+			assertThat(e.getMessage()).contains("FailingA").contains("FailingB");
+			assertThat(e.getMessage().indexOf("FailingA")).isLessThan(e.getMessage().indexOf("FailingB"));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void shoud_create_lazy_bean_on_first_use() {
+		// Setup
+		ExpensiveService.INSTANCES.set(0);
+		Gini ctx = Gini.initialize("org.theglump.gini.lazy");
+		Client client = ctx.getBean(Client.class);
+
+		// Assert
+		assertThat(ExpensiveService.INSTANCES.get()).isEqualTo(0);
+		assertThat(client.getService().work()).isEqualTo("expensive work");
+		assertThat(ExpensiveService.INSTANCES.get()).isEqualTo(1);
+		assertThat(ctx.getBean(ExpensiveService.class).work()).isEqualTo("expensive work");
+		assertThat(ExpensiveService.INSTANCES.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void shoud_create_cyclic_lazy_beans_from_two_threads() throws Exception {
+		// Setup
+		final Gini ctx = Gini.initialize("org.theglump.gini.lazy.cycle");
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		Left.CREATED = new CyclicBarrier(2);
+
+		try {
+			// Test
+			Future<Left> left = executor.submit(new Callable<Left>() {
+
+				@Override
+				public Left call() {
+					return ctx.getBean(Left.class);
+				}
+
+			});
+			Future<Right> right = executor.submit(new Callable<Right>() {
+
+				@Override
+				public Right call() {
+					return ctx.getBean(Right.class);
+				}
+
+			});
+
+			// Assert
+			assertThat(left.get(10, TimeUnit.SECONDS).getRight()).isSameAs(right.get(10, TimeUnit.SECONDS));
+			assertThat(right.get().getLeft()).isSameAs(left.get());
+		} finally {
+			Left.CREATED = null;
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void shoud_succeed_with_lazy_context() {
+		// Setup
+		Gini ctx = Gini.builder().packages("org.theglump.gini.bean").lazy(true).build();
+
+		// Test
+		ctx.inject(this);
+
+		// Assert
+		assertThat(root.getStep1().implemName()).isEqualTo("interceptor1 => stepImpl1");
+		assertThat(root.getStep2().implemName()).isEqualTo("interceptor1 => stepImpl2");
+		assertThat(root.getConcreteStep()).isInstanceOf(StepImpl1.class);
+		assertThat(root.getConcreteStep().getRule().getRuleName()).isEqualTo("interceptor2 => ruleImpl");
+	}
+
+	@Test
+	public void shoud_record_interception_metrics() throws Exception {
+		// Setup
+		Gini ctx = Gini.builder().packages("org.theglump.gini.chain").metrics(true).build();
+		Method greet = Greeter.class.getMethod("greet", String.class);
+		ObjectName names = new ObjectName("org.theglump.gini:type=InterceptedMethod,*");
+
+		try {
+			// Test
+			for (int i = 0; i < 3; i++) {
+				ctx.getBean(Greeter.class).greet("gini");
+			}
+			Map<Method, InterceptionStats> stats = ctx.getInterceptionStats();
+
+			// Assert
+			assertThat(stats.keySet()).containsOnly(greet);
+			assertThat(stats.get(greet).getCount()).isEqualTo(3);
+			assertThat(stats.get(greet).getErrorCount()).isEqualTo(0);
+			assertThat(stats.get(greet).getPercentileNanos(50)).isGreaterThan(0);
+			assertThat(ManagementFactory.getPlatformMBeanServer().queryNames(names, null)).isNotEmpty();
+		} finally {
+			ctx.close();
+		}
+		assertThat(ManagementFactory.getPlatformMBeanServer().queryNames(names, null)).isEmpty();
+		assertThat(Gini.initialize("org.theglump.gini.chain").getInterceptionStats()).isEmpty();
+	}
+
+	@Test
+	public void shoud_profile_bootstrap() {
+		// Test
+		BootstrapReport report = Gini.builder().packages("org.theglump.gini.bean").profile(true).build().getBootstrapReport();
+
+		// Assert
+		assertThat(report.getPhases()).onProperty("name").containsExactly("index", "interceptors", "create beans", "freeze", "inject beans");
+		assertThat(report.getBeans()).onProperty("name").containsOnly(Root.class.getName(), RuleImpl.class.getName(), StepImpl1.class.getName(),
+				StepImpl2.class.getName());
+		assertThat(report.getBeans().get(0).getNanos()).isGreaterThanOrEqualTo(report.getBeans().get(3).getNanos());
+		assertThat(report.getTotal().getNanos()).isGreaterThan(0);
+		assertThat(report.getJoinpointEvaluations()).isGreaterThan(0);
+		assertThat(report.getRegexEvaluations()).isEqualTo(0);
+		assertThat(report.toString()).contains("Slowest beans").contains(Root.class.getName());
+		assertThat(Gini.initialize("org.theglump.gini.bean").getBootstrapReport()).isNull();
+	}
+
+	@Test
+	public void shoud_create_prototype_bean_each_time() {
+		// Setup
+		Gini ctx = Gini.initialize("org.theglump.gini.scope");
+
+		// Assert
+		assertThat(ctx.getBean(Prototype.class)).isNotSameAs(ctx.getBean(Prototype.class));
+		assertThat(ctx.getBean(Worker.class).getPrototype()).isNotNull();
+	}
+
+	@Test
+	public void shoud_create_thread_bean_per_thread() throws Exception {
+		// Setup
+		final Gini ctx = Gini.initialize("org.theglump.gini.scope");
+		final Worker worker = ctx.getBean(Worker.class);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			// Test
+			worker.getBuffer().append("main ");
+			String otherThread = executor.submit(new Callable<String>() {
+
+				@Override
+				public String call() {
+					assertThat(ctx.getBean(ThreadBuffer.class)).isSameAs(ctx.getBean(ThreadBuffer.class));
+					return worker.getBuffer().append("other");
+				}
+
+			}).get();
+
+			// Assert
+			assertThat(otherThread).isEqualTo("other");
+			assertThat(worker.getBuffer().append("thread")).isEqualTo("main thread");
+			assertThat(ctx.getBean(ThreadBuffer.class).append("")).isEqualTo("main thread");
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void shoud_borrow_pooled_beans() {
+		// Setup
+		Gini ctx = Gini.initialize("org.theglump.gini.scope");
+		PooledParser.INSTANCES.set(0);
+
+		// Test
+		PooledParser parser1 = ctx.borrow(PooledParser.class);
+		PooledParser parser2 = ctx.borrow(PooledParser.class);
+		ctx.release(parser1);
+		ctx.release(parser2);
+
+		// Assert
+		assertThat(parser1).isNotSameAs(parser2);
+		assertThat(ctx.borrow(PooledParser.class)).isIn(parser1, parser2);
+		assertThat(ctx.getBean(Worker.class).getParser().parse("42")).isEqualTo(42);
+		assertThat(ctx.getBean(PooledParser.class).parse("7")).isEqualTo(7);
+		assertThat(PooledParser.INSTANCES.get()).isEqualTo(2);
+		try {
+			ctx.release(ctx.getBean(Worker.class));
+			fail("only pooled beans can be released");
+		} catch (GiniException e) {
+			assertThat(e.getMessage()).contains(Worker.class.getName());
+		}
+	}
+
+	@Test
+	public void shoud_reject_beans_not_borrowed_from_the_pool() {
+		// Setup
+		Gini ctx = Gini.initialize("org.theglump.gini.scope");
+		PooledParser parser = ctx.borrow(PooledParser.class);
+		ctx.release(parser);
+
+		// Test
+		try {
+			ctx.release(ctx.getBean(PooledParser.class));
+			fail("the pool proxy cannot be released");
+		} catch (GiniException e) {
+			// Assert
+			assertThat(e.getMessage()).contains("was not borrowed");
+		}
+		try {
+			ctx.release(parser);
+			fail("a bean cannot be released twice");
+		} catch (GiniException e) {
+			assertThat(e.getMessage()).contains("was not borrowed");
+		}
+		assertThat(ctx.getBean(PooledParser.class).parse("7")).isEqualTo(7);
+	}
+
+	@Test
+	public void shoud_call_async_advice_after_method() throws Exception {
+		// Setup
+		Gini ctx = Gini.initialize("org.theglump.gini.async");
+		AuditAdvice.AUDITS.clear();
+		Account account = ctx.getBean(Account.class);
+
+		try {
+			// Test
+			int balance = account.withdraw(10);
+			try {
+				account.withdraw(1000);
+				fail("withdraw should fail");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+
+			// Assert
+			assertThat(balance).isEqualTo(90);
+			assertThat(AuditAdvice.AUDITS.poll(5, TimeUnit.SECONDS)).isEqualTo("withdraw(10) = 90 on gini-async-0");
+			assertThat(AuditAdvice.AUDITS.poll(5, TimeUnit.SECONDS)).isEqualTo("withdraw(1000) = Insufficient balance on gini-async-0");
+		} finally {
+			ctx.close();
+		}
+	}
+
+	@Test
+	public void shoud_drop_async_advices_when_queue_is_full() throws Exception {
+		// Setup
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Gini ctx = Gini.builder().packages("org.theglump.gini.async").asyncExecutor(executor).asyncCapacity(1).build();
+		AuditAdvice.AUDITS.clear();
+		AuditAdvice.slowAudits = new CountDownLatch(1);
+		Account account = ctx.getBean(Account.class);
+
+		try {
+			// Test
+			for (int i = 1; i <= 3; i++) {
+				assertThat(account.deposit(i)).isEqualTo(100 + i * (i + 1) / 2);
+			}
+
+			// Assert
+			assertThat(ctx.getDroppedAsyncAdvices()).isEqualTo(2);
+			AuditAdvice.slowAudits.countDown();
+			assertThat(AuditAdvice.AUDITS.poll(5, TimeUnit.SECONDS)).isEqualTo("deposit(1)");
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void shoud_count_failed_async_advices() throws Exception {
+		// Setup
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Gini ctx = Gini.builder().packages("org.theglump.gini.async").asyncExecutor(executor).build();
+		Account account = ctx.getBean(Account.class);
+
+		// Test
+		int closed = account.close();
+		executor.shutdown();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+
+		// Assert
+		assertThat(closed).isEqualTo(100);
+		assertThat(ctx.getFailedAsyncAdvices()).isEqualTo(1);
+		assertThat(ctx.getDroppedAsyncAdvices()).isEqualTo(0);
+	}
+
+	@Test
+	public void shoud_inject_constructors() {
+		// Setup
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		Gini ctx;
+		try {
+			ctx = Gini.builder().packages("org.theglump.gini.constructor").bootstrapExecutor(executor).build();
+		} finally {
+			executor.shutdown();
+		}
+
+		// Test
+		Controller controller = ctx.getBean(Controller.class);
+
+		// Assert
+		assertThat(controller.getService().serve(1)).isEqualTo("served item1");
+		assertThat(controller.getRepository()).isSameAs(ctx.getBean(Repository.class));
+	}
+
+	@Test
+	public void shoud_inject_scoped_beans_having_an_injected_constructor() throws Exception {
+		// Setup
+		final Gini ctx = Gini.initialize("org.theglump.gini.constructor");
+		final Session session = ctx.getBean(Controller.class).getSession();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+
+			// Test
+			String otherThread = executor.submit(new Callable<String>() {
+
+				@Override
+				public String call() {
+					return session.find(2);
+				}
+
+			}).get();
+
+			// Assert
+			assertThat(session).isInstanceOf(Session.class).isNotSameAs(ctx.getBean(Session.class));
+			assertThat(session.find(1)).isEqualTo("item1@" + Thread.currentThread().getName());
+			assertThat(otherThread).isNotEqualTo("item2@" + Thread.currentThread().getName()).startsWith("item2@");
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = GiniException.class)
+	public void shoud_reject_cyclic_constructors() {
+		Gini.initialize("org.theglump.gini.cycle");
+	}
+
+	@Test
+	public void shoud_proxify_beans_with_generated_proxies() throws Exception {
+		// Setup
+		Calculator calculator = Gini.initialize("org.theglump.gini.generated").getBean(Calculator.class);
+		CountingAdvice.CALLS.set(0);
+
+		// Test
+		calculator.add(2);
+		int total = calculator.add(3);
+		calculator.reset();
+
+		// Assert
+		assertThat(calculator).isInstanceOf(GeneratedProxy.class);
+		assertThat(total).isEqualTo(5);
+		assertThat(calculator.last()).isEqualTo(3);
+		calculator.check(0);
+		assertThat(CountingAdvice.CALLS.get()).isEqualTo(4);
+		try {
+			calculator.check(1);
+			fail();
+		} catch (GiniException e) {
+			assertThat(e.getCause()).isInstanceOf(IOException.class);
+		}
+	}
+
+	@Test
+	public void shoud_cache_results_of_cached_methods() throws Exception {
+		// Setup
+		Gini ctx = Gini.initialize("org.theglump.gini.cached");
+		Catalog catalog = ctx.getBean(Catalog.class);
+
+		// Test
+		String first = catalog.describe("a");
+		String second = catalog.describe("a");
+		catalog.describe("b");
+		catalog.describe("");
+		String none = catalog.describe("");
+
+		// Assert
+		assertThat(catalog).isInstanceOf(GeneratedProxy.class);
+		assertThat(first).isEqualTo("[item a]");
+		assertThat(second).isEqualTo("[item a]");
+		assertThat(none).isNull();
+		assertThat(catalog.getLookups()).isEqualTo(3);
+		Method describe = Catalog.class.getMethod("describe", String.class);
+		assertThat(ctx.getCacheStats().keySet()).containsOnly(describe);
+		assertThat(ctx.getCacheStats().get(describe).hitCount()).isEqualTo(2);
+		assertThat(ctx.getCacheStats().get(describe).missCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void shoud_call_inherited_advice_methods() {
+		for (boolean useIndex : new boolean[] { true, false }) {
+			// Setup
+			Gini ctx = Gini.builder().packages("org.theglump.gini.inherited").useIndex(useIndex).build();
+
+			// Test
+			String hello = ctx.getBean(Greeting.class).hello();
+
+			// Assert
+			assertThat(hello).isEqualTo("HELLO");
+		}
+	}
+
+	@Test
+	public void shoud_intercept_annotated_methods() {
+		for (boolean generatedProxies : new boolean[] { true, false }) {
+			// Setup
+			Gini ctx = Gini.builder().packages("org.theglump.gini.annotated").generatedProxies(generatedProxies).build();
+			Invoice invoice = ctx.getBean(Invoice.class);
+			Ledger ledger = ctx.getBean(Ledger.class);
+			MetricsAdvice.TIMED.set(0);
+			MetricsAdvice.TRACED.set(0);
+
+			// Test
+			int total = invoice.total();
+			String label = invoice.label();
+			int count = invoice.count();
+			int balance = ledger.balance();
+
+			// Assert
+			assertThat(invoice instanceof GeneratedProxy).isEqualTo(generatedProxies);
+			assertThat(total).isEqualTo(42);
+			assertThat(label).isEqualTo("'invoice'");
+			assertThat(count).isEqualTo(1);
+			assertThat(balance).isEqualTo(10);
+			assertThat(MetricsAdvice.TIMED.get()).isEqualTo(2);
+			assertThat(MetricsAdvice.TRACED.get()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	public void shoud_initialize_context_from_snapshot() throws Exception {
+		// Setup
+		File file = File.createTempFile("gini", ".snapshot");
+		file.delete();
+		assertThat(Gini.builder().packages("org.theglump.gini.cached").snapshot(file).build().getSnapshotFailure()).isNull();
+
+		// Test
+		Gini ctx = Gini.builder().packages("org.theglump.gini.cached").snapshot(file).profile(true).build();
+		Catalog catalog = ctx.getBean(Catalog.class);
+
+		// Assert
+		assertThat(file.exists()).isTrue();
+		assertThat(ctx.getBootstrapReport().getJoinpointEvaluations()).isEqualTo(0);
+		assertThat(catalog).isInstanceOf(GeneratedProxy.class);
+		assertThat(catalog.describe("a")).isEqualTo("[item a]");
+		assertThat(catalog.describe("a")).isEqualTo("[item a]");
+		assertThat(catalog.getLookups()).isEqualTo(1);
+		file.delete();
+	}
+
+	@Test
+	public void shoud_initialize_context_when_snapshot_cannot_be_written() throws Exception {
+		// Setup
+		File notADirectory = File.createTempFile("gini", ".snapshot");
+
+		try {
+			// Test
+			Gini ctx = Gini.builder().packages("org.theglump.gini.cached").snapshot(new File(notADirectory, "gini.snapshot")).profile(true).build();
+
+			// Assert
+			assertThat(ctx.getBean(Catalog.class).describe("a")).isEqualTo("[item a]");
+			assertThat(ctx.getSnapshotFailure()).isNotNull();
+			assertThat(ctx.getBootstrapReport().getSnapshotFailure()).isSameAs(ctx.getSnapshotFailure());
+			assertThat(ctx.getBootstrapReport().toString()).contains("Snapshot not written");
+		} finally {
+			notADirectory.delete();
+		}
+	}
+
+	@Test
+	public void shoud_call_typed_advices() {
+		for (Gini ctx : new Gini[] { Gini.initialize("org.theglump.gini.typed"),
+				Gini.builder().packages("org.theglump.gini.typed").generatedProxies(false).build(),
+				Gini.builder().packages("org.theglump.gini.typed").metrics(true).build() }) {
+			// Setup
+			Counter counter = ctx.getBean(Counter.class);
+
+			// Test
+			counter.add(3);
+			long total = counter.add(1);
+			int scaled = counter.scale(2, 3);
+
+			// Assert
+			assertThat(total).isEqualTo(10);
+			assertThat(scaled).isEqualTo(7);
+			ctx.close();
+		}
+	}
+
+	@Test
+	public void shoud_proxify_beans_with_cglib_when_generated_proxies_are_disabled() {
+		// Setup
+		Gini ctx = Gini.builder().packages("org.theglump.gini.generated").generatedProxies(false).build();
+
+		// Test
+		Calculator calculator = ctx.getBean(Calculator.class);
+
+		// Assert
+		assertThat(calculator instanceof GeneratedProxy).isFalse();
+		assertThat(calculator.add(2)).isEqualTo(2);
+		assertThat(calculator.last()).isEqualTo(2);
+	}
+
+	@Test
+	public void shoud_share_parent_beans_with_child_contexts() {
+		// Setup
+		Gini parent = Gini.initialize("org.theglump.gini.bean");
+
+		// Test
+		Gini child1 = Gini.builder().packages("org.theglump.gini.tenant").parent(parent).build();
+		Gini child2 = Gini.builder().packages("org.theglump.gini.tenant").parent(parent).build();
+
+		// Assert
+		TenantService service = child1.getBean(TenantService.class);
+		assertThat(child1.getParent()).isSameAs(parent);
+		assertThat(service.getRoot()).isSameAs(parent.getBean(Root.class));
+		assertThat(child2.getBean(TenantService.class).getRoot()).isSameAs(parent.getBean(Root.class));
+		assertThat(child2.getBean(TenantService.class)).isNotSameAs(service);
+		assertThat(service.getRule()).isSameAs(child1.getBean(Rule.class));
+		assertThat(service.getRule().getRuleName()).isEqualTo("interceptor2 => tenantRule");
+		assertThat(parent.getBean(Rule.class).getRuleName()).isEqualTo("interceptor2 => ruleImpl");
+		try {
+			parent.getBean(TenantRule.class);
+			fail();
+		} catch (GiniException e) {
+			// beans of a child are not visible from its parent
+		}
+	}
+
+	@Test
+	public void shoud_refresh_only_the_beans_affected_by_a_package() {
+		// Setup
+		Gini ctx = Gini.builder().packages("org.theglump.gini.chain", "org.theglump.gini.host").build();
+		Host host = ctx.getBean(Host.class);
+		Greeter greeter = ctx.getBean(Greeter.class);
+
+		// Test
+		ctx.refresh("org.theglump.gini.plugin");
+
+		// Assert
+		assertThat(ctx.getBean(Host.class)).isSameAs(host);
+		assertThat(ctx.getBean(Greeter.class)).isNotSameAs(greeter);
+		assertThat(host.getGreeter()).isSameAs(ctx.getBean(Greeter.class));
+		assertThat(ctx.getBean(Plugin.class).welcome()).isEqualTo("TRACE(TIMING(HELLO TIMED PLUGIN))");
+
+		// Test
+		Plugin plugin = ctx.getBean(Plugin.class);
+		ctx.refresh("org.theglump.gini.plugin");
+
+		// Assert
+		assertThat(ctx.getBean(Plugin.class)).isNotSameAs(plugin);
+		assertThat(ctx.getBean(Greeter.class)).isSameAs(host.getGreeter());
+	}
+
+	@Test
+	public void shoud_keep_advices_of_other_packages_on_refresh() {
+		// Setup
+		Gini ctx = Gini.builder().packages("org.theglump.gini.chain", "org.theglump.gini.host").build();
+		TraceAdvice.INSTANCES.set(0);
+		ctx.refresh("org.theglump.gini.plugin");
+
+		// Test
+		ctx.refresh("org.theglump.gini.plugin");
+
+		// Assert
+		assertThat(TraceAdvice.INSTANCES.get()).isEqualTo(0);
+		assertThat(ctx.getBean(Plugin.class).welcome()).isEqualTo("TRACE(TIMING(HELLO TIMED PLUGIN))");
+	}
+
+	@Test
+	public void shoud_refresh_only_the_given_package_among_packages_sharing_a_prefix() {
+		// Setup
+		Gini ctx = Gini.builder().packages("org.theglump.gini.chain", "org.theglump.gini.host", "org.theglump.gini.plugin").build();
+		Plugin plugin = ctx.getBean(Plugin.class);
+
+		// Test
+		ctx.refresh("org.theglump.gini.plug");
+
+		// Assert
+		assertThat(ctx.getBean(Plug.class).name()).isEqualTo("plug");
+		assertThat(ctx.getBean(Plugin.class)).isSameAs(plugin);
+		assertThat(plugin.welcome()).isEqualTo("TRACE(TIMING(HELLO TIMED PLUGIN))");
+	}
+
+	@Test
+	public void shoud_leave_context_as_is_when_refresh_fails() {
+		// Setup
+		Gini ctx = Gini.builder().packages("org.theglump.gini.chain", "org.theglump.gini.host", "org.theglump.gini.plugin").build();
+		Host host = ctx.getBean(Host.class);
+		Greeter greeter = ctx.getBean(Greeter.class);
+		Plugin plugin = ctx.getBean(Plugin.class);
+
+		try {
+			// Test
+			ctx.refresh("org.theglump.gini.failing");
+			fail("refresh should fail");
+		} catch (GiniException e) {
+			// Assert
+			assertThat(ctx.getBean(Host.class)).isSameAs(host);
+			assertThat(ctx.getBean(Greeter.class)).isSameAs(greeter);
+			assertThat(host.getGreeter()).isSameAs(greeter);
+			assertThat(ctx.getBean(Plugin.class).welcome()).isEqualTo("TRACE(TIMING(HELLO TIMED PLUGIN))");
+		}
+
+		// Test
+		ctx.refresh("org.theglump.gini.plugin");
+
+		// Assert
+		assertThat(ctx.getBean(Plugin.class)).isNotSameAs(plugin);
+		assertThat(ctx.getBean(Greeter.class)).isSameAs(greeter);
+	}
+
 }
@@ -0,0 +1,66 @@
+package org.theglump.gini;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.junit.Test;
+import org.theglump.gini.bean.Root;
+import org.theglump.gini.bean.RuleImpl;
+import org.theglump.gini.bean.StepImpl1;
+import org.theglump.gini.bean.StepImpl2;
+
+import com.google.common.collect.ImmutableSet;
+
+public class InjectorTest {
+
+	@Test
+	public void should_inject_fields_of_every_instance() {
+		// Setup
+		BeanStore store = new BeanStore();
+		store.registerBean(new StepImpl1());
+		store.registerBean(new StepImpl2());
+		store.registerBean(new RuleImpl());
+		Injector injector = new Injector(ClassIndex.scan("org.theglump.gini.bean").getInjectFields(Root.class));
+		Root root1 = new Root();
+		Root root2 = new Root();
+
+		// Test
+		injector.inject(root1, store);
+		injector.inject(root2, store);
+
+		// Assert
+		assertThat(root1.getStep1()).isInstanceOf(StepImpl1.class);
+		assertThat(root1.getStep2()).isInstanceOf(StepImpl2.class);
+		assertThat(root1.getConcreteStep()).isSameAs(root1.getStep1());
+		assertThat(root2.getStep1()).isSameAs(root1.getStep1());
+		assertThat(root2.getStep2()).isSameAs(root1.getStep2());
+	}
+
+	@Test
+	public void should_resolve_beans_again_once_the_store_is_frozen_again() {
+		// Setup
+		BeanStore store = new BeanStore();
+		store.registerBean(new StepImpl1());
+		store.registerBean(new StepImpl2());
+		store.registerBean(new RuleImpl());
+		store.freeze();
+		Injector injector = new Injector(ClassIndex.scan("org.theglump.gini.bean").getInjectFields(Root.class));
+		Root root1 = new Root();
+		injector.inject(root1, store);
+		StepImpl1 step1 = new StepImpl1();
+		store.unregister(ImmutableSet.<Class<?>> of(StepImpl1.class));
+		store.registerBean(step1);
+		Root root2 = new Root();
+		Root root3 = new Root();
+
+		// Test
+		injector.inject(root2, store);
+		store.freeze();
+		injector.inject(root3, store);
+
+		// Assert
+		assertThat(root2.getStep1()).isSameAs(root1.getStep1());
+		assertThat(root3.getStep1()).isSameAs(step1);
+		assertThat(root3.getStep2()).isSameAs(root1.getStep2());
+	}
+
+}
@@ -2,11 +2,20 @@ package org.theglump.gini;
 
 import static org.fest.assertions.Assertions.assertThat;
 
+import java.lang.reflect.Method;
 import java.util.Set;
 
 import org.junit.Test;
+import org.theglump.gini.annotated.Invoice;
+import org.theglump.gini.annotated.Ledger;
+import org.theglump.gini.annotated.MetricsAdvice;
+import org.theglump.gini.annotation.AfterAsync;
+import org.theglump.gini.annotation.Around;
+import org.theglump.gini.annotation.Cached;
 import org.theglump.gini.bean.Advice1;
 
+import com.google.common.collect.SetMultimap;
+
 public class InterceptorHelperTest {
 
 	@Test
@@ -31,6 +40,87 @@ public class InterceptorHelperTest {
 		assertThat(i2.getInterceptedMethods()).hasSize(1);
 	}
 
+	@Test
+	public void should_match_annotated_methods() throws Exception {
+		// Setup
+		InterceptorHelper interceptorHelper = new InterceptorHelper("org.theglump.gini.annotated");
+
+		// Test
+		SetMultimap<Method, Method> targetMethods = interceptorHelper.computeTargetMethods();
+
+		// Assert
+		assertThat(targetMethods.get(adviceMethod("time"))).containsOnly(Invoice.class.getMethod("total"), Invoice.class.getMethod("label"));
+		assertThat(targetMethods.get(adviceMethod("trace"))).containsOnly(Ledger.class.getMethod("balance"));
+		assertThat(targetMethods.get(adviceMethod("quote"))).containsOnly(Invoice.class.getMethod("label"));
+		// the joinpoint of quote is only evaluated against annotated methods
+		assertThat(interceptorHelper.getJoinpointEvaluations()).isLessThanOrEqualTo(4);
+	}
+
+	@Test(expected = GiniException.class)
+	public void should_reject_advice_without_pointcut() throws Exception {
+		// Setup
+		ClassIndex index = new ClassIndex();
+		index.addAdviceType(NoPointcutAdvice.class);
+		Method adviceMethod = NoPointcutAdvice.class.getMethod("none", Object.class, Method.class, Object[].class, MethodInvoker.class);
+		index.addJoinpoint(adviceMethod, adviceMethod.getAnnotation(Around.class).joinpoint());
+
+		// Test
+		new InterceptorHelper(index).computeTargetMethods();
+	}
+
+	@Test(expected = GiniException.class)
+	public void should_reject_async_advice_with_wrong_signature() throws Exception {
+		// Setup
+		ClassIndex index = new ClassIndex();
+		index.addAdviceType(WrongAsyncAdvice.class);
+		Method adviceMethod = WrongAsyncAdvice.class.getMethod("audit", Object.class, Method.class, Object[].class);
+		index.addJoinpoint(adviceMethod, adviceMethod.getAnnotation(AfterAsync.class).joinpoint());
+		InterceptorHelper interceptorHelper = new InterceptorHelper(index);
+
+		// Test
+		interceptorHelper.createInterceptors(interceptorHelper.computeTargetMethods());
+	}
+
+	@Test(expected = GiniException.class)
+	public void should_reject_cached_method_returning_void() throws Exception {
+		// Setup
+		ClassIndex index = new ClassIndex();
+		index.addManagedType(VoidCache.class);
+		InterceptorHelper interceptorHelper = new InterceptorHelper(index);
+
+		// Test
+		interceptorHelper.createInterceptors(interceptorHelper.computeTargetMethods());
+	}
+
+	private static Method adviceMethod(String name) throws NoSuchMethodException {
+		return MetricsAdvice.class.getMethod(name, Object.class, Method.class, Object[].class, MethodInvoker.class);
+	}
+
+	public static class NoPointcutAdvice {
+
+		@Around
+		public Object none(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+			return methodInvoker.invokeMethod(args);
+		}
+
+	}
+
+	public static class WrongAsyncAdvice {
+
+		@AfterAsync(joinpoint = ".*Invoice.total")
+		public void audit(Object bean, Method method, Object[] args) {
+		}
+
+	}
+
+	public static class VoidCache {
+
+		@Cached
+		public void clear() {
+		}
+
+	}
+
 	private Interceptor interceptorByMethod(Set<Interceptor> interceptors, String methodName) {
 		for (Interceptor interceptor : interceptors) {
 			if (methodName.equals(interceptor.getMethod().getName())) {
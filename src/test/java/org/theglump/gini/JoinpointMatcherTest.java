@@ -0,0 +1,40 @@
+package org.theglump.gini;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class JoinpointMatcherTest {
+
+	private static final String[] JOINPOINTS = { ".*Step.*implemName", ".*Rule.getRuleName", "org.theglump.gini.bean.Rule.getRuleName", ".*", "..*Name",
+			".*Step(Impl1)?.implemName", ".*\\.Rule\\.getRuleName", ".*Step.*implemName.*" };
+
+	private static final String[][] PATHES = { { "org.theglump.gini.bean.Step", "implemName" }, { "org.theglump.gini.bean.StepImpl1", "implemName" },
+			{ "org.theglump.gini.bean.StepImpl1", "getRule" }, { "org.theglump.gini.bean.Rule", "getRuleName" },
+			{ "org.theglump.gini.bean.RuleImpl", "getRuleName" }, { "org.theglump.gini.bean.MyRule", "getRuleName" },
+			{ "org.theglump.gini.bean.MyRuleX", "getRuleName" }, { "org.theglump.gini.bean.Step", "implemNameOther" }, { "java.lang.Object", "toString" } };
+
+	@Test
+	public void should_match_as_the_joinpoint_regexp() {
+		for (String joinpoint : JOINPOINTS) {
+			JoinpointMatcher matcher = JoinpointMatcher.compile(joinpoint);
+			for (String[] path : PATHES) {
+				boolean expected = (path[0] + "." + path[1]).matches(joinpoint);
+
+				assertThat(matcher.matches(path[0], path[1])).as(joinpoint + " on " + path[0] + "." + path[1]).isEqualTo(expected);
+			}
+		}
+	}
+
+	@Test
+	public void should_match_structured_joinpoint() {
+		// Setup
+		JoinpointMatcher matcher = JoinpointMatcher.compile(".*Rule.getRuleName");
+
+		// Assert
+		assertThat(matcher.matches("org.theglump.gini.bean.Rule", "getRuleName")).isTrue();
+		assertThat(matcher.matches("org.theglump.gini.bean.RuleImpl", "getRuleName")).isFalse();
+		assertThat(matcher.matches("org.theglump.gini.bean.Rule", "getRule")).isFalse();
+	}
+
+}
@@ -0,0 +1,45 @@
+package org.theglump.gini;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.junit.Test;
+
+public class LatencyRecorderTest {
+
+	@Test
+	public void should_count_values_in_buckets_of_bounded_precision() {
+		for (long value : new long[] { 0, 1, 15, 16, 17, 100, 1000, 123456789, Long.MAX_VALUE }) {
+			// Test
+			int bucket = LatencyRecorder.bucket(value);
+
+			// Assert
+			assertThat(bucket).isLessThan(LatencyRecorder.BUCKET_COUNT);
+			assertThat(LatencyRecorder.highestValue(bucket)).isGreaterThanOrEqualTo(value);
+			assertThat(LatencyRecorder.highestValue(bucket) - value).isLessThanOrEqualTo(value / 8);
+			if (bucket > 0) {
+				assertThat(LatencyRecorder.highestValue(bucket - 1)).isLessThan(value);
+			}
+		}
+	}
+
+	@Test
+	public void should_compute_stats() throws Exception {
+		// Setup
+		LatencyRecorder recorder = new LatencyRecorder(Object.class.getMethod("toString"));
+
+		// Test
+		for (int i = 1; i <= 100; i++) {
+			recorder.record(i * 1000, i > 98);
+		}
+		InterceptionStats stats = recorder.snapshot();
+
+		// Assert
+		assertThat(stats.getCount()).isEqualTo(100);
+		assertThat(stats.getErrorCount()).isEqualTo(2);
+		assertThat(stats.getMeanNanos()).isEqualTo(50500.0);
+		assertThat(stats.getMaxNanos()).isEqualTo(100000);
+		assertThat(stats.getPercentileNanos(50)).isGreaterThanOrEqualTo(50000).isLessThanOrEqualTo(50000 + 50000 / 8);
+		assertThat(stats.getPercentileNanos(100)).isEqualTo(100000);
+	}
+
+}
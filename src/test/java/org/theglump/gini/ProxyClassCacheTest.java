@@ -0,0 +1,32 @@
+package org.theglump.gini;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import org.junit.Test;
+import org.theglump.gini.bean.RuleImpl;
+import org.theglump.gini.bean.StepImpl1;
+
+import com.google.common.cache.CacheStats;
+
+public class ProxyClassCacheTest {
+
+	@Test
+	public void should_share_proxy_classes_between_contexts() {
+		// Setup
+		Gini ctx1 = Gini.builder().packages("org.theglump.gini.bean").generatedProxies(false).build();
+		CacheStats before = Gini.getProxyClassCacheStats();
+
+		// Test
+		Gini ctx2 = Gini.builder().packages("org.theglump.gini.bean").generatedProxies(false).build();
+
+		// Assert
+		CacheStats stats = Gini.getProxyClassCacheStats().minus(before);
+		assertThat(stats.missCount()).isEqualTo(0);
+		assertThat(stats.hitCount()).isGreaterThanOrEqualTo(3);
+		assertThat(Gini.getProxyClassCacheSize()).isGreaterThanOrEqualTo(3);
+		assertThat(ctx2.getBean(StepImpl1.class).getClass()).isSameAs(ctx1.getBean(StepImpl1.class).getClass());
+		assertThat(ctx2.getBean(StepImpl1.class)).isNotSameAs(ctx1.getBean(StepImpl1.class));
+		assertThat(ctx2.getBean(RuleImpl.class).getRuleName()).isEqualTo("interceptor2 => ruleImpl");
+	}
+
+}
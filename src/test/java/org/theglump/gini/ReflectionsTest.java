@@ -0,0 +1,38 @@
+package org.theglump.gini;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+
+import net.sf.cglib.proxy.MethodInterceptor;
+import net.sf.cglib.proxy.MethodProxy;
+
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.theglump.gini.bean.StepImpl1;
+
+import com.google.common.collect.ImmutableSet;
+
+public class ReflectionsTest {
+
+	@Test
+	public void should_only_intercept_intercepted_methods() throws Throwable {
+		// Setup
+		Method implemName = StepImpl1.class.getMethod("implemName");
+		MethodInterceptor methodInterceptor = Mockito.mock(MethodInterceptor.class);
+		Mockito.when(methodInterceptor.intercept(Matchers.any(), Matchers.eq(implemName), Matchers.any(Object[].class), Matchers.any(MethodProxy.class)))
+				.thenReturn("intercepted");
+
+		// Test
+		StepImpl1 proxy = Reflections.createProxy(StepImpl1.class, methodInterceptor, ImmutableSet.of(implemName));
+
+		// Assert
+		assertThat(proxy.implemName()).isEqualTo("intercepted");
+		assertThat(proxy.getRule()).isNull();
+		assertThat(proxy.toString()).startsWith(StepImpl1.class.getName());
+		Mockito.verify(methodInterceptor).intercept(Matchers.any(), Matchers.eq(implemName), Matchers.any(Object[].class), Matchers.any(MethodProxy.class));
+		Mockito.verifyNoMoreInteractions(methodInterceptor);
+	}
+
+}
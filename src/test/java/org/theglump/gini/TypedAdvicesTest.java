@@ -0,0 +1,103 @@
+package org.theglump.gini;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.theglump.gini.typed.Counter;
+import org.theglump.gini.typed.LongOperation;
+import org.theglump.gini.typed.TypedAdvice;
+
+public class TypedAdvicesTest {
+
+	@Test
+	public void should_bind_typed_advices_to_generated_proxies() throws Exception {
+		// Setup
+		Counter counter = Gini.initialize("org.theglump.gini.typed").getBean(Counter.class);
+
+		// Test
+		int bound = 0;
+		for (Field field : counter.getClass().getDeclaredFields()) {
+			if (field.getName().startsWith("gini$typed")) {
+				field.setAccessible(true);
+				bound += field.get(counter) != null ? 1 : 0;
+			}
+		}
+
+		// Assert
+		assertThat(counter).isInstanceOf(GeneratedProxy.class);
+		assertThat(bound).isEqualTo(2);
+		assertThat(counter.add(1)).isEqualTo(3);
+	}
+
+	@Test
+	public void should_wrap_exceptions_of_bound_and_dispatched_methods_alike() {
+		// Setup
+		Counter bound = Gini.initialize("org.theglump.gini.typed").getBean(Counter.class);
+		Counter dispatched = Gini.builder().packages("org.theglump.gini.typed").generatedProxies(false).build().getBean(Counter.class);
+
+		// Test
+		for (Counter counter : new Counter[] { bound, dispatched }) {
+			try {
+				counter.scale(2, -1);
+				fail("scale should fail");
+			} catch (GiniException e) {
+				// Assert
+				assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class);
+			}
+		}
+	}
+
+	@Test
+	public void should_dispatch_typed_advice_with_unboxed_arguments() throws Exception {
+		// Setup
+		Method adviceMethod = TypedAdvice.class.getMethod("twice", LongOperation.class, long.class);
+		MethodInvoker methodInvoker = Mockito.mock(MethodInvoker.class);
+		Mockito.when(methodInvoker.invokeMethod(new Object[] { 8L })).thenReturn(9L);
+
+		// Test
+		Object result = AdviceDispatchers.forMethod(adviceMethod).dispatch(new TypedAdvice(), "bean", null, new Object[] { 4L }, methodInvoker);
+
+		// Assert
+		assertThat(result).isEqualTo(9L);
+	}
+
+	@Test
+	public void should_only_accept_methods_having_the_types_of_the_advice() throws Exception {
+		// Setup
+		Method adviceMethod = TypedAdvice.class.getMethod("twice", LongOperation.class, long.class);
+
+		// Assert
+		assertThat(TypedAdvices.isTyped(adviceMethod)).isTrue();
+		assertThat(TypedAdvices.accepts(adviceMethod, Counter.class.getMethod("add", long.class))).isTrue();
+		assertThat(TypedAdvices.accepts(adviceMethod, Counter.class.getMethod("scale", int.class, int.class))).isFalse();
+	}
+
+	@Test
+	public void should_reject_typed_advice_without_proceed_interface() throws Exception {
+		// Setup
+		Method adviceMethod = InvalidAdvice.class.getMethod("invalid", Runnable.class, long.class);
+
+		// Test
+		try {
+			TypedAdvices.getProceedMethod(adviceMethod);
+			fail();
+		} catch (GiniException e) {
+			// Assert
+			assertThat(e.getMessage()).contains("must have the parameter and return types");
+		}
+	}
+
+	public static class InvalidAdvice {
+
+		public long invalid(Runnable proceed, long value) {
+			return value;
+		}
+
+	}
+
+}
@@ -0,0 +1,22 @@
+package org.theglump.gini.annotated;
+
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Invoice {
+
+	@Timed
+	public int total() {
+		return 42;
+	}
+
+	@Timed
+	public String label() {
+		return "invoice";
+	}
+
+	public int count() {
+		return 1;
+	}
+
+}
@@ -0,0 +1,13 @@
+package org.theglump.gini.annotated;
+
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+@Traced
+public class Ledger {
+
+	public int balance() {
+		return 10;
+	}
+
+}
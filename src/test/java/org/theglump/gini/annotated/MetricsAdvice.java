@@ -0,0 +1,33 @@
+package org.theglump.gini.annotated;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.theglump.gini.MethodInvoker;
+import org.theglump.gini.annotation.Advice;
+import org.theglump.gini.annotation.Around;
+
+@Advice
+public class MetricsAdvice {
+
+	public static final AtomicInteger TIMED = new AtomicInteger();
+	public static final AtomicInteger TRACED = new AtomicInteger();
+
+	@Around(annotatedWith = Timed.class)
+	public Object time(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+		TIMED.incrementAndGet();
+		return methodInvoker.invokeMethod(args);
+	}
+
+	@Around(annotatedWith = Traced.class)
+	public Object trace(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+		TRACED.incrementAndGet();
+		return methodInvoker.invokeMethod(args);
+	}
+
+	@Around(joinpoint = ".*label", annotatedWith = Timed.class)
+	public Object quote(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+		return "'" + methodInvoker.invokeMethod(args) + "'";
+	}
+
+}
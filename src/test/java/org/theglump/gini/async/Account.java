@@ -0,0 +1,29 @@
+package org.theglump.gini.async;
+
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Account {
+
+	private int balance = 100;
+
+	public int withdraw(int amount) {
+		if (amount > balance) {
+			throw new IllegalArgumentException("Insufficient balance");
+		}
+		balance -= amount;
+		return balance;
+	}
+
+	public int deposit(int amount) {
+		balance += amount;
+		return balance;
+	}
+
+	public int close() {
+		int closed = balance;
+		balance = 0;
+		return closed;
+	}
+
+}
@@ -0,0 +1,35 @@
+package org.theglump.gini.async;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.theglump.gini.annotation.Advice;
+import org.theglump.gini.annotation.AfterAsync;
+import org.theglump.gini.annotation.AfterAsync.Overflow;
+
+@Advice
+public class AuditAdvice {
+
+	public static final BlockingQueue<String> AUDITS = new LinkedBlockingQueue<String>();
+	public static volatile CountDownLatch slowAudits = new CountDownLatch(0);
+
+	@AfterAsync(joinpoint = ".*Account.withdraw")
+	public void audit(Object bean, Method method, Object[] args, Object result, Throwable error) {
+		AUDITS.add(method.getName() + "(" + args[0] + ") = " + (error != null ? error.getMessage() : result) + " on "
+				+ Thread.currentThread().getName());
+	}
+
+	@AfterAsync(joinpoint = ".*Account.deposit", overflow = Overflow.DROP)
+	public void slowAudit(Object bean, Method method, Object[] args, Object result, Throwable error) throws InterruptedException {
+		slowAudits.await();
+		AUDITS.add(method.getName() + "(" + args[0] + ")");
+	}
+
+	@AfterAsync(joinpoint = ".*Account.close")
+	public void failingAudit(Object bean, Method method, Object[] args, Object result, Throwable error) {
+		throw new IllegalStateException("audit failed");
+	}
+
+}
@@ -0,0 +1,23 @@
+package org.theglump.gini.cached;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.theglump.gini.annotation.Cached;
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Catalog {
+
+	private final AtomicInteger lookups = new AtomicInteger();
+
+	@Cached(maximumSize = 10)
+	public String describe(String item) {
+		lookups.incrementAndGet();
+		return item.isEmpty() ? null : "item " + item;
+	}
+
+	public int getLookups() {
+		return lookups.get();
+	}
+
+}
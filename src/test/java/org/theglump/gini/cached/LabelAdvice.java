@@ -0,0 +1,18 @@
+package org.theglump.gini.cached;
+
+import java.lang.reflect.Method;
+
+import org.theglump.gini.MethodInvoker;
+import org.theglump.gini.annotation.Advice;
+import org.theglump.gini.annotation.Around;
+
+@Advice
+public class LabelAdvice {
+
+	@Around(joinpoint = ".*Catalog.describe")
+	public Object label(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+		Object result = methodInvoker.invokeMethod(args);
+		return result != null ? "[" + result + "]" : null;
+	}
+
+}
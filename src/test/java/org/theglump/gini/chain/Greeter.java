@@ -0,0 +1,12 @@
+package org.theglump.gini.chain;
+
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Greeter {
+
+	public String greet(String name) {
+		return "hello " + name;
+	}
+
+}
@@ -0,0 +1,17 @@
+package org.theglump.gini.chain;
+
+import java.lang.reflect.Method;
+
+import org.theglump.gini.MethodInvoker;
+import org.theglump.gini.annotation.Advice;
+import org.theglump.gini.annotation.Around;
+
+@Advice
+public class TimingAdvice {
+
+	@Around(joinpoint = ".*Greeter.greet", order = 2)
+	public String time(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+		return "timing(" + methodInvoker.invokeMethod(new Object[] { "timed " + args[0] }) + ")";
+	}
+
+}
@@ -0,0 +1,24 @@
+package org.theglump.gini.chain;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.theglump.gini.MethodInvoker;
+import org.theglump.gini.annotation.Advice;
+import org.theglump.gini.annotation.Around;
+
+@Advice
+public class TraceAdvice {
+
+	public static final AtomicInteger INSTANCES = new AtomicInteger();
+
+	public TraceAdvice() {
+		INSTANCES.incrementAndGet();
+	}
+
+	@Around(joinpoint = ".*Greeter.greet", order = 1)
+	public String trace(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+		return "trace(" + methodInvoker.invokeMethod(args) + ")";
+	}
+
+}
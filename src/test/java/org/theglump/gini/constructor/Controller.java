@@ -0,0 +1,34 @@
+package org.theglump.gini.constructor;
+
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Controller {
+
+	private final Service service;
+
+	@Inject
+	private Repository repository;
+
+	@Inject
+	private Session session;
+
+	@Inject
+	Controller(Service service) {
+		this.service = service;
+	}
+
+	public Service getService() {
+		return service;
+	}
+
+	public Repository getRepository() {
+		return repository;
+	}
+
+	public Session getSession() {
+		return session;
+	}
+
+}
@@ -0,0 +1,12 @@
+package org.theglump.gini.constructor;
+
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Repository {
+
+	public String find(int id) {
+		return "item" + id;
+	}
+
+}
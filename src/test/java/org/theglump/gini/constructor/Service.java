@@ -0,0 +1,20 @@
+package org.theglump.gini.constructor;
+
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Service {
+
+	private final Repository repository;
+
+	@Inject
+	public Service(Repository repository) {
+		this.repository = repository;
+	}
+
+	public String serve(int id) {
+		return repository.find(id);
+	}
+
+}
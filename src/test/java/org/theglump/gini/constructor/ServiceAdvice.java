@@ -0,0 +1,17 @@
+package org.theglump.gini.constructor;
+
+import java.lang.reflect.Method;
+
+import org.theglump.gini.MethodInvoker;
+import org.theglump.gini.annotation.Advice;
+import org.theglump.gini.annotation.Around;
+
+@Advice
+public class ServiceAdvice {
+
+	@Around(joinpoint = ".*Service.serve")
+	public Object served(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+		return "served " + methodInvoker.invokeMethod(args);
+	}
+
+}
@@ -0,0 +1,21 @@
+package org.theglump.gini.constructor;
+
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+import org.theglump.gini.annotation.Scope;
+
+@Managed(scope = Scope.THREAD)
+public class Session {
+
+	private final Repository repository;
+
+	@Inject
+	Session(Repository repository) {
+		this.repository = repository;
+	}
+
+	public String find(int id) {
+		return repository.find(id) + "@" + Thread.currentThread().getName();
+	}
+
+}
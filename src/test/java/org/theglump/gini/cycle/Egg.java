@@ -0,0 +1,13 @@
+package org.theglump.gini.cycle;
+
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Egg {
+
+	@Inject
+	public Egg(Chicken chicken) {
+	}
+
+}
@@ -0,0 +1,12 @@
+package org.theglump.gini.failing;
+
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class FailingA {
+
+	public FailingA() {
+		throw new IllegalStateException("failinga");
+	}
+
+}
@@ -0,0 +1,15 @@
+package org.theglump.gini.generated;
+
+public abstract class Accumulator<T> {
+
+	private T last;
+
+	public T last() {
+		return last;
+	}
+
+	protected void remember(T value) {
+		last = value;
+	}
+
+}
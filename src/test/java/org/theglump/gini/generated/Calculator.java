@@ -0,0 +1,28 @@
+package org.theglump.gini.generated;
+
+import java.io.IOException;
+
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Calculator extends Accumulator<Integer> {
+
+	private int total;
+
+	public int add(int value) {
+		total += value;
+		remember(value);
+		return total;
+	}
+
+	public void reset() {
+		total = 0;
+	}
+
+	public void check(int expected) throws IOException {
+		if (total != expected) {
+			throw new IOException("total is " + total);
+		}
+	}
+
+}
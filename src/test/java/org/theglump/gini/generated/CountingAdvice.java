@@ -0,0 +1,21 @@
+package org.theglump.gini.generated;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.theglump.gini.MethodInvoker;
+import org.theglump.gini.annotation.Advice;
+import org.theglump.gini.annotation.Around;
+
+@Advice
+public class CountingAdvice {
+
+	public static final AtomicInteger CALLS = new AtomicInteger();
+
+	@Around(joinpoint = ".*Calculator.*")
+	public Object count(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+		CALLS.incrementAndGet();
+		return methodInvoker.invokeMethod(args);
+	}
+
+}
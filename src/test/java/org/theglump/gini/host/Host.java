@@ -0,0 +1,17 @@
+package org.theglump.gini.host;
+
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+import org.theglump.gini.chain.Greeter;
+
+@Managed
+public class Host {
+
+	@Inject
+	private Greeter greeter;
+
+	public Greeter getGreeter() {
+		return greeter;
+	}
+
+}
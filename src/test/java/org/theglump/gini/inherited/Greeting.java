@@ -0,0 +1,12 @@
+package org.theglump.gini.inherited;
+
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Greeting {
+
+	public String hello() {
+		return "hello";
+	}
+
+}
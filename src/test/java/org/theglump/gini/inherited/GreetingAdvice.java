@@ -0,0 +1,8 @@
+package org.theglump.gini.inherited;
+
+import org.theglump.gini.annotation.Advice;
+
+@Advice
+public class GreetingAdvice extends UpperCaseAdvice {
+
+}
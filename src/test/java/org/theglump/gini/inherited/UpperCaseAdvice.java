@@ -0,0 +1,15 @@
+package org.theglump.gini.inherited;
+
+import java.lang.reflect.Method;
+
+import org.theglump.gini.MethodInvoker;
+import org.theglump.gini.annotation.Around;
+
+public class UpperCaseAdvice {
+
+	@Around(joinpoint = ".*Greeting.hello")
+	public Object upperCase(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+		return methodInvoker.invokeMethod(args).toString().toUpperCase();
+	}
+
+}
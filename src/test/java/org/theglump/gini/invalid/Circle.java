@@ -0,0 +1,8 @@
+package org.theglump.gini.invalid;
+
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Circle implements Shape {
+
+}
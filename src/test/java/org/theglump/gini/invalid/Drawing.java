@@ -0,0 +1,19 @@
+package org.theglump.gini.invalid;
+
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+
+// never scanned by a context : its fields cannot all be injected
+@Managed
+public class Drawing {
+
+	@Inject
+	private Missing missing;
+
+	@Inject
+	private Shape shape;
+
+	@Inject
+	private Shape square;
+
+}
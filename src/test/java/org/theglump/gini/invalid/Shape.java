@@ -0,0 +1,5 @@
+package org.theglump.gini.invalid;
+
+public interface Shape {
+
+}
@@ -0,0 +1,16 @@
+package org.theglump.gini.lazy;
+
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Client {
+
+	@Inject
+	private Service expensiveService;
+
+	public Service getService() {
+		return expensiveService;
+	}
+
+}
@@ -0,0 +1,21 @@
+package org.theglump.gini.lazy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.theglump.gini.annotation.Managed;
+
+@Managed(lazy = true)
+public class ExpensiveService implements Service {
+
+	public static final AtomicInteger INSTANCES = new AtomicInteger();
+
+	public ExpensiveService() {
+		INSTANCES.incrementAndGet();
+	}
+
+	@Override
+	public String work() {
+		return "expensive work";
+	}
+
+}
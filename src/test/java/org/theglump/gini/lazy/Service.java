@@ -0,0 +1,7 @@
+package org.theglump.gini.lazy;
+
+public interface Service {
+
+	String work();
+
+}
@@ -0,0 +1,31 @@
+package org.theglump.gini.lazy.cycle;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+
+@Managed(lazy = true)
+public class Left {
+
+	/**
+	 * Barrier both beans wait on once created, when set
+	 */
+	public static volatile CyclicBarrier CREATED;
+
+	@Inject
+	private Right right;
+
+	public Left() throws Exception {
+		CyclicBarrier created = CREATED;
+		if (created != null) {
+			created.await(5, TimeUnit.SECONDS);
+		}
+	}
+
+	public Right getRight() {
+		return right;
+	}
+
+}
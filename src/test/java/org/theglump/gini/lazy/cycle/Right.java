@@ -0,0 +1,26 @@
+package org.theglump.gini.lazy.cycle;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+
+@Managed(lazy = true)
+public class Right {
+
+	@Inject
+	private Left left;
+
+	public Right() throws Exception {
+		CyclicBarrier created = Left.CREATED;
+		if (created != null) {
+			created.await(5, TimeUnit.SECONDS);
+		}
+	}
+
+	public Left getLeft() {
+		return left;
+	}
+
+}
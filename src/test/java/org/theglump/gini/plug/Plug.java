@@ -0,0 +1,12 @@
+package org.theglump.gini.plug;
+
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Plug {
+
+	public String name() {
+		return "plug";
+	}
+
+}
@@ -0,0 +1,17 @@
+package org.theglump.gini.plugin;
+
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+import org.theglump.gini.chain.Greeter;
+
+@Managed
+public class Plugin {
+
+	@Inject
+	private Greeter greeter;
+
+	public String welcome() {
+		return greeter.greet("plugin");
+	}
+
+}
@@ -0,0 +1,17 @@
+package org.theglump.gini.plugin;
+
+import java.lang.reflect.Method;
+
+import org.theglump.gini.MethodInvoker;
+import org.theglump.gini.annotation.Advice;
+import org.theglump.gini.annotation.Around;
+
+@Advice
+public class ShoutAdvice {
+
+	@Around(joinpoint = ".*Greeter.greet")
+	public String shout(Object bean, Method method, Object[] args, MethodInvoker methodInvoker) {
+		return methodInvoker.invokeMethod(args).toString().toUpperCase();
+	}
+
+}
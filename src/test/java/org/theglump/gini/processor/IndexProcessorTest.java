@@ -0,0 +1,93 @@
+package org.theglump.gini.processor;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+
+public class IndexProcessorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File sources;
+	private File output;
+
+	@Before
+	public void setUp() throws IOException {
+		sources = folder.newFolder("sources");
+		output = folder.newFolder("output");
+		write("Dep", "@org.theglump.gini.annotation.Managed public class Dep {}");
+		write("User", "@org.theglump.gini.annotation.Managed public class User { @org.theglump.gini.annotation.Inject Dep dep; }");
+		write("Worker", "@org.theglump.gini.annotation.Managed public class Worker {}");
+		write("Outer", "public class Outer { public static class Sub extends Dep {} }");
+	}
+
+	@Test
+	public void should_index_nested_subclasses_of_managed_types() throws Exception {
+		// Test
+		compile("Dep", "User", "Worker", "Outer");
+
+		// Assert
+		assertThat(readIndex()).contains("managed\tpkg.Outer$Sub\t");
+	}
+
+	@Test
+	public void should_keep_entries_of_classes_not_compiled_again() throws Exception {
+		// Setup
+		compile("Dep", "User", "Worker", "Outer");
+		List<String> index = readIndex();
+
+		// Test
+		compile("User");
+
+		// Assert
+		assertThat(readIndex()).isEqualTo(index);
+	}
+
+	@Test
+	public void should_drop_entries_of_removed_classes() throws Exception {
+		// Setup
+		compile("Dep", "User", "Worker", "Outer");
+		new File(output, "pkg/Worker.class").delete();
+
+		// Test
+		compile("User");
+
+		// Assert
+		assertThat(readIndex()).contains("managed\tpkg.Dep\t", "managed\tpkg.User\t", "inject\tpkg.User\tdep").excludes("managed\tpkg.Worker\t");
+	}
+
+	private void write(String className, String source) throws IOException {
+		File file = new File(sources, "pkg/" + className + ".java");
+		Files.createParentDirs(file);
+		Files.write("package pkg;\n\n" + source + "\n", file, Charsets.UTF_8);
+	}
+
+	private void compile(String... classNames) {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		List<String> arguments = Lists.newArrayList("-processor", IndexProcessor.class.getName(), "-classpath",
+				output.getPath() + File.pathSeparator + System.getProperty("java.class.path"), "-d", output.getPath());
+		for (String className : classNames) {
+			arguments.add(new File(sources, "pkg/" + className + ".java").getPath());
+		}
+		assertThat(compiler.run(null, null, null, arguments.toArray(new String[arguments.size()]))).isEqualTo(0);
+	}
+
+	private List<String> readIndex() throws IOException {
+		return Files.readLines(new File(output, IndexProcessor.INDEX_RESOURCE), Charsets.UTF_8);
+	}
+}
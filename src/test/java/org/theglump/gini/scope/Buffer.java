@@ -0,0 +1,7 @@
+package org.theglump.gini.scope;
+
+public interface Buffer {
+
+	String append(String text);
+
+}
@@ -0,0 +1,21 @@
+package org.theglump.gini.scope;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.theglump.gini.annotation.Managed;
+import org.theglump.gini.annotation.Scope;
+
+@Managed(scope = Scope.POOLED, poolSize = 2)
+public class PooledParser {
+
+	public static final AtomicInteger INSTANCES = new AtomicInteger();
+
+	public PooledParser() {
+		INSTANCES.incrementAndGet();
+	}
+
+	public int parse(String text) {
+		return Integer.parseInt(text);
+	}
+
+}
@@ -0,0 +1,9 @@
+package org.theglump.gini.scope;
+
+import org.theglump.gini.annotation.Managed;
+import org.theglump.gini.annotation.Scope;
+
+@Managed(scope = Scope.PROTOTYPE)
+public class Prototype {
+
+}
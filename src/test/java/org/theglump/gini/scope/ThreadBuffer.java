@@ -0,0 +1,16 @@
+package org.theglump.gini.scope;
+
+import org.theglump.gini.annotation.Managed;
+import org.theglump.gini.annotation.Scope;
+
+@Managed(scope = Scope.THREAD)
+public class ThreadBuffer implements Buffer {
+
+	private final StringBuilder content = new StringBuilder();
+
+	@Override
+	public String append(String text) {
+		return content.append(text).toString();
+	}
+
+}
@@ -0,0 +1,30 @@
+package org.theglump.gini.scope;
+
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Worker {
+
+	@Inject
+	private Buffer threadBuffer;
+
+	@Inject
+	private PooledParser pooledParser;
+
+	@Inject
+	private Prototype prototype;
+
+	public Buffer getBuffer() {
+		return threadBuffer;
+	}
+
+	public PooledParser getParser() {
+		return pooledParser;
+	}
+
+	public Prototype getPrototype() {
+		return prototype;
+	}
+
+}
@@ -0,0 +1,13 @@
+package org.theglump.gini.tenant;
+
+import org.theglump.gini.annotation.Managed;
+import org.theglump.gini.bean.Rule;
+
+@Managed
+public class TenantRule implements Rule {
+
+	public String getRuleName() {
+		return "tenantRule";
+	}
+
+}
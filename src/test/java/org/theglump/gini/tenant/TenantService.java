@@ -0,0 +1,28 @@
+package org.theglump.gini.tenant;
+
+import org.theglump.gini.annotation.Inject;
+import org.theglump.gini.annotation.Managed;
+import org.theglump.gini.bean.Root;
+import org.theglump.gini.bean.Rule;
+
+@Managed
+public class TenantService {
+
+	private final Root root;
+	private final Rule rule;
+
+	@Inject
+	public TenantService(Root root, Rule rule) {
+		this.root = root;
+		this.rule = rule;
+	}
+
+	public Root getRoot() {
+		return root;
+	}
+
+	public Rule getRule() {
+		return rule;
+	}
+
+}
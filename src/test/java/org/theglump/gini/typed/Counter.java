@@ -0,0 +1,22 @@
+package org.theglump.gini.typed;
+
+import org.theglump.gini.annotation.Managed;
+
+@Managed
+public class Counter {
+
+	private long total;
+
+	public long add(long value) {
+		total += value;
+		return total;
+	}
+
+	public int scale(int value, int factor) {
+		if (factor < 0) {
+			throw new IllegalArgumentException("Negative factor");
+		}
+		return value * factor;
+	}
+
+}
@@ -0,0 +1,7 @@
+package org.theglump.gini.typed;
+
+public interface IntBinaryOperation {
+
+	int apply(int left, int right);
+
+}
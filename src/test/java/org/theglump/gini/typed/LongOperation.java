@@ -0,0 +1,7 @@
+package org.theglump.gini.typed;
+
+public interface LongOperation {
+
+	long apply(long value);
+
+}
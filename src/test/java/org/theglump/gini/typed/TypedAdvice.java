@@ -0,0 +1,25 @@
+package org.theglump.gini.typed;
+
+import org.theglump.gini.annotation.Advice;
+import org.theglump.gini.annotation.Around;
+
+@Advice
+public class TypedAdvice {
+
+	@Around(joinpoint = ".*Counter.add", order = 1)
+	public long twice(LongOperation proceed, long value) {
+		return proceed.apply(value * 2);
+	}
+
+	@Around(joinpoint = ".*Counter.add", order = 2)
+	public long increment(LongOperation proceed, long value) {
+		return proceed.apply(value + 1);
+	}
+
+	// only intercepts the methods of Counter taking two ints
+	@Around(joinpoint = ".*Counter.*")
+	public int plusOne(IntBinaryOperation proceed, int left, int right) {
+		return proceed.apply(left, right) + 1;
+	}
+
+}